@@ -2,6 +2,7 @@ package de.saumya.mojo.gem;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
 
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.DependencyResolutionRequiredException;
@@ -14,8 +15,10 @@ import de.saumya.mojo.jruby.AbstractJRubyMojo;
 import de.saumya.mojo.ruby.gems.GemException;
 import de.saumya.mojo.ruby.gems.GemManager;
 import de.saumya.mojo.ruby.gems.GemsConfig;
+import de.saumya.mojo.ruby.gems.GemsFingerprint;
 import de.saumya.mojo.ruby.gems.GemsInstaller;
 import de.saumya.mojo.ruby.script.GemScriptFactory;
+import de.saumya.mojo.ruby.script.ScriptBatch;
 import de.saumya.mojo.ruby.script.ScriptException;
 import de.saumya.mojo.ruby.script.ScriptFactory;
 
@@ -42,7 +45,39 @@ public abstract class AbstractGemMojo extends AbstractJRubyMojo {
     protected boolean         installRI;
 
     /**
-     * directory of gem home to use when forking JRuby.
+     * install gems without native extensions by unpacking them in java
+     * instead of running 'gem install'.
+     *
+     * @parameter expression="${gem.javaInstall}" default-value="true"
+     */
+    protected boolean         javaInstall;
+
+    /**
+     * number of gem artifacts which get resolved in parallel.
+     *
+     * @parameter expression="${gem.resolveThreads}" default-value="4"
+     */
+    protected int             resolveThreads;
+
+    /**
+     * unpack the gems once into a store inside the local repository and link
+     * them from there into the gem home. saves a lot of disk space and I/O
+     * for multi-module builds. the store uses file locks and can be shared by
+     * parallel builds.
+     * <br/>
+     * the files in the gem home are hard links to the files in the store, so
+     * a gem which gets modified in place, i.e. patched by a script or an
+     * extension build writing into its directory, modifies the store and
+     * with it the gem of every other project using the store. builds which
+     * change installed gems must not use the shared store. deleting or
+     * replacing files in the gem home is safe.
+     *
+     * @parameter expression="${gem.sharedStore}" default-value="false"
+     */
+    protected boolean         sharedStore;
+
+    /**
+     * directory of gem home to use for JRuby.
      *
      * @parameter expression="${gem.home}"
      *            default-value="${project.build.directory}/rubygems"
@@ -50,7 +85,7 @@ public abstract class AbstractGemMojo extends AbstractJRubyMojo {
     protected File          gemHome;
 
     /**
-     * directory of JRuby path to use when forking JRuby.
+     * directory of JRuby path to use for JRuby.
      *
      * @parameter expression="${gem.path}"
      *            default-value="${project.build.directory}/rubygems"
@@ -118,6 +153,12 @@ public abstract class AbstractGemMojo extends AbstractJRubyMojo {
             MojoFailureException, IOException, ScriptException {
                 this.gemsConfig.setAddRdoc(this.installRDoc);
         this.gemsConfig.setAddRI(this.installRI);
+        this.gemsConfig.setJavaInstall(this.javaInstall);
+        this.gemsConfig.setResolveThreads(this.resolveThreads);
+        if (this.sharedStore) {
+            this.gemsConfig.setStoreDirectory(new File(this.localRepository.getBasedir(),
+                    ".cache/jruby-maven-plugins/gems"));
+        }
         this.gemsConfig.setBinDirectory(this.binDirectory);
         // this.gemsConfig.setUserInstall(userInstall);
         // this.gemsConfig.setSystemInstall(systemInstall);
@@ -127,31 +168,63 @@ public abstract class AbstractGemMojo extends AbstractJRubyMojo {
                 this.factory,
                 this.manager);
 
+        // has the plugin gem dependencies ?
+        boolean hasGems = false;
+        for(Artifact artifact: plugin.getArtifacts()){
+            if (artifact.getType().contains("gem")){
+                hasGems = true;
+                break;
+            }
+        }
+        final File home = this.gemsConfig.getGemHome();
+        final File pluginHome = hasGems
+                ? new File(home.getAbsolutePath() + "-" + plugin.getArtifactId())
+                : null;
+
+        // skip the installation when the gems did not change since the last
+        // successful installation
+        final GemsFingerprint fingerprint = new GemsFingerprint(this.gemsConfig)
+                .addArtifacts(this.project.getArtifacts());
+        if (this.project.getArtifact().getFile() != null
+                && this.project.getArtifact().getFile().isFile()) {
+            fingerprint.addArtifacts(Collections.singleton(this.project.getArtifact()));
+        }
+        if (hasGems) {
+            fingerprint.addArtifacts(this.plugin.getArtifacts())
+                    .addGemHome(pluginHome);
+        }
+        final boolean upToDate = fingerprint.isUpToDate();
+        if (upToDate) {
+            getLog().debug("installed gems are up to date");
+        }
+
+        // run all the gem installs with one jruby process
+        final ScriptBatch batch = this.factory.newScriptBatch();
         try {
-            // install the gem dependecies from the pom
-            this.gemsInstaller.installPom(this.project, this.localRepository);
-
-            // has the plugin gem dependencies ?
-            boolean hasGems = false;
-            for(Artifact artifact: plugin.getArtifacts()){
-                if (artifact.getType().contains("gem")){
-                    hasGems = true;
-                    break;
-                }
+            if (!upToDate) {
+                // install the gem dependecies from the pom
+                this.gemsInstaller.installPom(this.project, this.localRepository, batch);
             }
+
             // install the gems for the plugin
             if (hasGems){
                 // use a common bindir, i.e. the one from the configured gemHome
                 // remove default by setting it explicitly
                 this.gemsConfig.setBinDirectory(this.gemsConfig.getBinDirectory());
-                File home = this.gemsConfig.getGemHome();
-                this.gemsConfig.setGemHome(new File(this.gemsConfig.getGemHome().getAbsolutePath() + "-" + plugin.getArtifactId()));
+                this.gemsConfig.setGemHome(pluginHome);
                 this.gemsConfig.addGemPath(this.gemsConfig.getGemHome());
 
-                this.gemsInstaller.installGems(this.project, this.plugin.getArtifacts(), this.localRepository);
+                if (!upToDate) {
+                    this.gemsInstaller.installGems(this.project, this.plugin.getArtifacts(), this.localRepository, batch);
+                }
 
                 this.gemsConfig.setGemHome(home);
             }
+
+            if (!upToDate) {
+                batch.execute();
+                fingerprint.store();
+            }
         }
         catch (final GemException e) {
             throw new MojoExecutionException("error in installing gems", e);
@@ -16,9 +16,15 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.apache.maven.model.Contributor;
 import org.apache.maven.model.Developer;
@@ -26,6 +32,12 @@ import org.apache.maven.model.License;
 import org.apache.maven.project.MavenProject;
 import org.codehaus.plexus.util.FileUtils;
 
+import de.saumya.mojo.gems.gem.Gem;
+import de.saumya.mojo.gems.spec.GemDependency;
+import de.saumya.mojo.gems.spec.GemRequirement;
+import de.saumya.mojo.gems.spec.GemSpecification;
+import de.saumya.mojo.gems.spec.GemVersion;
+
 class GemspecWriter {
 
     final MavenProject      project;
@@ -42,6 +54,13 @@ class GemspecWriter {
     private boolean         platformAppended = false;
     private boolean         firstTestFile;
 
+    // the same data as java specification for packaging without rubygems
+    final GemSpecification  spec             = new GemSpecification();
+    final List<String>      fileGlobs        = new ArrayList<String>();
+    final List<String>      testGlobs        = new ArrayList<String>();
+
+    private static final Pattern REQUIREMENT = Pattern.compile("(~>|>=|<=|!=|>|<|=)?\\s*(.*)");
+
     // private List<String> executables = new ArrayList<String>();
 
     GemspecWriter(final File gemspec, final MavenProject project,
@@ -58,6 +77,7 @@ class GemspecWriter {
         append("name", artifact.getGemName());
         appendRaw("version", "'"
                 + GemArtifact.getGemVersion(project.getVersion()) + "'");
+        this.spec.setVersion(new GemVersion(GemArtifact.getGemVersion(project.getVersion())));
         append();
         append("summary", project.getName());
         append("description", project.getDescription());
@@ -81,7 +101,23 @@ class GemspecWriter {
         return this.gemspec.lastModified() > this.latestModified;
     }
 
-    private String gemVersion(String version) {
+    private String gemVersion(final String version) {
+        final List<String> requirements = requirements(version);
+        if (requirements.size() == 1) {
+            return "'" + requirements.get(0) + "'";
+        }
+        final StringBuilder buf = new StringBuilder("[");
+        for (final String requirement : requirements) {
+            if (buf.length() > 1) {
+                buf.append(",");
+            }
+            buf.append("'").append(requirement).append("'");
+        }
+        return buf.append("]").toString();
+    }
+
+    private List<String> requirements(String version) {
+        final List<String> result = new ArrayList<String>();
         version = version.replaceAll("-SNAPSHOT", "").replace("-", ".");
         if (version.matches("^[\\[\\(].*[\\]\\)]$")) {
             final int comma = version.indexOf(",");
@@ -91,32 +127,109 @@ class GemspecWriter {
             if (version.matches("\\[.*99999.99999\\)$")) {
                 // out of '[1.2.0, 1.99999.99999]' make '1.2'
                 final String prefix = second.replaceFirst("99999.99999$", "");
-                return "'~> "
+                result.add("~> "
                         + prefix
                         + first.substring(prefix.length())
-                                .replaceFirst("[.].*", "") + "'";
+                                .replaceFirst("[.].*", ""));
             }
             else if (version.matches("\\[.*,\\)$")) {
-                final StringBuilder buf = new StringBuilder("'>");
-                buf.append(version.charAt(0) == '[' ? "=" : "");
-                buf.append(first).append("'");
-                return buf.toString();
+                result.add(">" + (version.charAt(0) == '[' ? "=" : "")
+                        + first);
             }
             else {
-                final StringBuilder buf = new StringBuilder("['>");
-                buf.append(version.charAt(0) == '[' ? "=" : "");
-                buf.append(first).append("','<");
-                buf.append(version.charAt(version.length() - 1) == '['
-                        ? "="
-                        : "");
-                buf.append(second);
-                buf.append("']");
-                return buf.toString();
+                result.add(">" + (version.charAt(0) == '[' ? "=" : "")
+                        + first);
+                result.add("<"
+                        + (version.charAt(version.length() - 1) == '['
+                                ? "="
+                                : "") + second);
             }
         }
         else {
-            return "'" + version + "'";
+            result.add(version);
+        }
+        return result;
+    }
+
+    private void specification(final String key, final String value) {
+        if ("name".equals(key)) {
+            this.spec.setName(value);
+        }
+        else if ("summary".equals(key)) {
+            this.spec.setSummary(value);
+        }
+        else if ("description".equals(key)) {
+            this.spec.setDescription(value);
+        }
+        else if ("homepage".equals(key)) {
+            this.spec.setHomepage(value);
+        }
+        else if ("date".equals(key)) {
+            this.spec.setDate(java.sql.Date.valueOf(value));
+        }
+        else if ("rubygems_version".equals(key)) {
+            this.spec.setRubygems_version(value);
+        }
+        else if ("required_rubygems_version".equals(key)) {
+            this.spec.setRequired_rubygems_version(requirement(Arrays.asList(value.split(","))));
+        }
+        else if ("required_ruby_version".equals(key)) {
+            this.spec.setRequired_ruby_version(requirement(Arrays.asList(value.split(","))));
+        }
+        else if ("bindir".equals(key)) {
+            this.spec.setBindir(value);
+        }
+        else if ("post_install_message".equals(key)) {
+            this.spec.setPost_install_message(value);
+        }
+        else if ("rubyforge_project".equals(key)) {
+            this.spec.setRubyforge_project(value);
+        }
+        else if ("platform".equals(key)) {
+            this.spec.setPlatform(value);
+        }
+    }
+
+    private List<String> specificationList(final String name) {
+        if ("executables".equals(name)) {
+            return this.spec.getExecutables();
+        }
+        else if ("extensions".equals(name)) {
+            return this.spec.getExtensions();
+        }
+        else if ("rdoc_options".equals(name)) {
+            return this.spec.getRdoc_options();
+        }
+        else if ("require_paths".equals(name)) {
+            return this.spec.getRequire_paths();
+        }
+        else if ("extra_rdoc_files".equals(name)) {
+            return this.spec.getExtra_rdoc_files();
+        }
+        else {
+            return new ArrayList<String>();
+        }
+    }
+
+    private void dependency(final String name, final String version,
+            final String type) {
+        final GemDependency dependency = new GemDependency();
+        dependency.setName(name);
+        dependency.setType(type);
+        dependency.setVersion_requirement(requirement(requirements(version)));
+        this.spec.getDependencies().add(dependency);
+    }
+
+    private GemRequirement requirement(final List<String> requirements) {
+        final GemRequirement requirement = new GemRequirement();
+        for (final String part : requirements) {
+            final Matcher matcher = REQUIREMENT.matcher(part.trim());
+            matcher.matches();
+            requirement.addRequirement(matcher.group(1) == null
+                    ? "="
+                    : matcher.group(1), new GemVersion(matcher.group(2)));
         }
+        return requirement;
     }
 
     private void append() throws IOException {
@@ -130,6 +243,7 @@ class GemspecWriter {
     private void appendAuthor(final String name, final String email)
             throws IOException {
         if (name != null && email != null) {
+            this.spec.getAuthors().add(name);
             if (this.firstAuthor) {
                 this.writer.append("  s.authors = ['")
                         .append(name)
@@ -138,6 +252,7 @@ class GemspecWriter {
                         .append(email)
                         .append("']\n");
                 this.firstAuthor = false;
+                this.spec.setEmail(email);
             }
             else {
                 this.writer.append("  s.authors << '")
@@ -152,6 +267,7 @@ class GemspecWriter {
 
     void append(final String key, final String value) throws IOException {
         if (value != null) {
+            specification(key, value);
             this.writer.append("  s.")
                     .append(key)
                     .append(" = '")
@@ -173,6 +289,7 @@ class GemspecWriter {
 
     void appendDependency(final String name, final String version)
             throws IOException {
+        dependency(name, version, ":runtime");
         this.writer.append("  s.add_dependency '")
                 .append(name)
                 .append("', ")
@@ -182,6 +299,7 @@ class GemspecWriter {
 
     void appendDevelopmentDependency(final String name, final String version)
             throws IOException {
+        dependency(name, version, ":development");
         this.writer.append("  s.add_development_dependency '")
                 .append(name)
                 .append("', ")
@@ -201,6 +319,7 @@ class GemspecWriter {
                     .append(path)
                     .append("/**/*']\n");
         }
+        this.fileGlobs.add(path + "/**/*");
         final File file = new File(this.project.getBasedir(), path);
         if (file.lastModified() > this.latestModified) {
             this.latestModified = file.lastModified();
@@ -220,6 +339,7 @@ class GemspecWriter {
                     .append(path)
                     .append("/**/*_" + path + ".rb']\n");
         }
+        this.testGlobs.add(path + "/**/*_" + path + ".rb");
         final File file = new File(this.project.getBasedir(), path);
         if (file.lastModified() > this.latestModified) {
             this.latestModified = file.lastModified();
@@ -242,6 +362,7 @@ class GemspecWriter {
     }
 
     void appendFile(final File file) throws IOException {
+        this.fileGlobs.add(file.getPath());
         if (this.firstFile) {
             this.writer.append("  s.files = Dir['")
                     .append(file.toString())
@@ -266,6 +387,7 @@ class GemspecWriter {
     }
 
     void appendExecutable(final String executable) throws IOException {
+        this.spec.getExecutables().add(executable);
         this.writer.append("  s.executables << '" + executable + "'\n");
     }
 
@@ -294,6 +416,37 @@ class GemspecWriter {
         }
         if (name != null) {
             append("  s.licenses << '" + name.replaceFirst("^./", "") + "'");
+            this.spec.getLicenses().add(name.replaceFirst("^./", ""));
+        }
+    }
+
+    /**
+     * all the files which go into the gem, i.e. the files, the content of
+     * the directories, the jars and the local licenses.
+     */
+    List<File> inputs() {
+        final List<File> inputs = new ArrayList<File>();
+        inputs.addAll(this.jarFiles.values());
+        inputs.addAll(this.files);
+        for (final File dir : this.dirs) {
+            collect(new File(this.project.getBasedir(), dir.getPath()), inputs);
+        }
+        for (final URL url : this.licenses) {
+            if ("file".equals(url.getProtocol())) {
+                inputs.add(new File(url.getFile()));
+            }
+        }
+        return inputs;
+    }
+
+    private void collect(final File file, final List<File> inputs) {
+        if (file.isDirectory()) {
+            for (final File child : file.listFiles()) {
+                collect(child, inputs);
+            }
+        }
+        else if (file.exists() && !file.getName().matches(this.excludes)) {
+            inputs.add(file);
         }
     }
 
@@ -378,6 +531,71 @@ class GemspecWriter {
         }
     }
 
+    /**
+     * the gem with all the files of the gemspec found in the given directory,
+     * i.e. the directory where the gem would be built by rubygems.
+     */
+    Gem gem(final File gemDir) throws IOException {
+        if (this.spec.getDate() == null) {
+            this.spec.setDate(new Date());
+        }
+        if (this.spec.getRequire_paths().isEmpty()) {
+            this.spec.getRequire_paths().add("lib");
+        }
+        this.spec.getFiles().clear();
+        this.spec.getTest_files().clear();
+        final Gem gem = new Gem(this.spec);
+        final Set<String> testFiles = new TreeSet<String>();
+        for (final String glob : this.testGlobs) {
+            testFiles.addAll(glob(gemDir, glob));
+        }
+        // like rubygems the files include the test files, executables and
+        // extensions
+        final Set<String> files = new TreeSet<String>(testFiles);
+        for (final String glob : this.fileGlobs) {
+            files.addAll(glob(gemDir, glob));
+        }
+        final String bindir = this.spec.getBindir() == null
+                ? "bin"
+                : this.spec.getBindir();
+        for (final String executable : this.spec.getExecutables()) {
+            files.addAll(glob(gemDir, bindir + "/" + executable));
+        }
+        for (final String extension : this.spec.getExtensions()) {
+            files.addAll(glob(gemDir, extension));
+        }
+        for (final String file : files) {
+            gem.addFile(new File(gemDir, file), file);
+        }
+        this.spec.getTest_files().addAll(testFiles);
+        return gem;
+    }
+
+    private List<String> glob(final File dir, final String glob)
+            throws IOException {
+        final List<String> result = new ArrayList<String>();
+        if (glob.indexOf('*') < 0) {
+            if (new File(dir, glob).isFile()) {
+                result.add(glob.replace(File.separatorChar, '/'));
+            }
+        }
+        else if (glob.indexOf("/**") < 0
+                || new File(dir, glob.substring(0, glob.indexOf("/**"))).isDirectory()) {
+            for (final Object file : FileUtils.getFileNames(dir,
+                                                              glob,
+                                                              null,
+                                                              false)) {
+                final String path = file.toString()
+                        .replace(File.separatorChar, '/');
+                // the same files as copied for rubygems
+                if (!new File(path).getName().matches(this.excludes)) {
+                    result.add(path);
+                }
+            }
+        }
+        return result;
+    }
+
     void close() throws IOException {
         try {
             this.writer.append("end");
@@ -389,6 +607,10 @@ class GemspecWriter {
 
     void appendList(final String name, final String list) throws IOException {
         if (list != null) {
+            final List<String> values = specificationList(name);
+            for (final String part : list.split(",")) {
+                values.add(part.trim());
+            }
             final StringBuilder buf = new StringBuilder("[");
             boolean first = true;
             for (final String part : list.split(",")) {
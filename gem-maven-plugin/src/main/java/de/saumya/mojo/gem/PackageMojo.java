@@ -13,10 +13,14 @@ import org.apache.maven.model.Dependency;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.MavenProjectHelper;
 import org.codehaus.plexus.util.FileUtils;
 import org.codehaus.plexus.util.StringUtils;
 import org.sonatype.aether.RepositorySystemSession;
 
+import de.saumya.mojo.gems.gem.Gem;
+import de.saumya.mojo.gems.gem.GemPackager;
+import de.saumya.mojo.ruby.Digests;
 import de.saumya.mojo.ruby.script.ScriptException;
 
 /**
@@ -95,6 +99,35 @@ public class PackageMojo extends AbstractGemMojo {
      */
     boolean                           includeDependencies;
 
+    /**
+     * build the gem with 'gem build' instead of packaging it in java.
+     *
+     * @parameter expression="${gem.rubyBuild}" default-value="false"
+     */
+    boolean                           rubyBuild;
+
+    /**
+     * compression level of the data.tar.gz of the gem, 0-9 or -1 for the
+     * default level.
+     *
+     * @parameter expression="${gem.compressionLevel}" default-value="-1"
+     */
+    int                               compressionLevel;
+
+    /**
+     * compress the data.tar.gz of the gem on all cores. needs java 7 or
+     * newer.
+     *
+     * @parameter expression="${gem.parallelCompression}" default-value="false"
+     */
+    boolean                           parallelCompression;
+
+    /** @component */
+    protected GemPackager             gemPackager;
+
+    /** @component */
+    protected MavenProjectHelper      projectHelper;
+
     /**
      * @parameter default-value="${repositorySystemSession}"
      * @readonly
@@ -314,6 +347,26 @@ public class PackageMojo extends AbstractGemMojo {
 
         gemSpecWriter.close();
 
+        // skip the packaging when none of the inputs changed
+        final PackagingManifest manifest = new PackagingManifest(new File(this.buildDirectory,
+                artifact.getGemName() + ".manifest"));
+        manifest.add("gemHook", this.gemHook);
+        manifest.add("rubyBuild", this.rubyBuild);
+        manifest.add("compressionLevel", this.compressionLevel);
+        manifest.add("parallelCompression", this.parallelCompression);
+        manifest.add("mavenVersion", project.getVersion());
+        manifest.add(gemSpec);
+        for (final File input : gemSpecWriter.inputs()) {
+            manifest.add(input);
+        }
+        final File upToDateGem = manifest.upToDateGem();
+        if (upToDateGem != null) {
+            getLog().info("gem is up to date: " + upToDateGem.getName());
+            overwriteGemspec(gemSpec);
+            copyGem(upToDateGem, artifact.getFile());
+            return;
+        }
+
         gemSpecWriter.copy(gemDir);
 
         if (artifact.hasJarFile() && !rubyFile.exists()) {
@@ -369,19 +422,14 @@ public class PackageMojo extends AbstractGemMojo {
             }
         }
 
-        final File localGemspec = new File(launchDirectory(), gemSpec.getName());
-
-        this.factory.newScriptFromResource(GEM_RUBY_COMMAND)
-                .addArg("build", gemSpec)
-                .executeIn(gemDir);
-
-        if ((!localGemspec.exists() || !FileUtils.contentEquals(localGemspec,
-                                                                gemSpec))
-                && this.gemspecOverwrite) {
-            getLog().info("overwrite gemspec '" + localGemspec.getName() + "'");
-            FileUtils.copyFile(gemSpec, localGemspec);
+        if (this.rubyBuild) {
+            this.factory.newScriptFromResource(GEM_RUBY_COMMAND)
+                    .addArg("build", gemSpec)
+                    .executeIn(gemDir);
         }
 
+        overwriteGemspec(gemSpec);
+
         final StringBuilder gemFilename = new StringBuilder("rubygems".equals(artifact.getGroupId())
                 ? ""
                 : artifact.getGroupId() + ".").append(artifact.getArtifactId())
@@ -390,8 +438,53 @@ public class PackageMojo extends AbstractGemMojo {
                 .append("java-gem".equals(artifact.getType()) || "java".equals(this.platform) ? "-java" : "")
                 .append(".gem");
 
-        FileUtils.copyFile(new File(gemDir, gemFilename.toString()),
-                           artifact.getFile());
+        final File gemFile;
+        if (this.rubyBuild) {
+            gemFile = new File(gemDir, gemFilename.toString());
+            FileUtils.fileWrite(gemFile.getPath() + ".sha1",
+                                Digests.sha1(gemFile));
+            FileUtils.fileWrite(gemFile.getPath() + ".sha256",
+                                Digests.sha256(gemFile));
+        }
+        else {
+            final Gem gem = gemSpecWriter.gem(gemDir);
+            gem.setChecksumFiles(true);
+            gem.setCompressionLevel(this.compressionLevel);
+            gem.setParallelCompression(this.parallelCompression);
+            gemFile = this.gemPackager.createGem(gem, gemDir);
+        }
+        copyGem(gemFile, artifact.getFile());
+        manifest.store(gemFile);
+    }
+
+    /**
+     * copies the gem together with its checksum files. the sha256 file gets
+     * attached to the project, so it gets installed and deployed with the
+     * gem. the install and deploy plugins write the sha1 files themselves.
+     */
+    private void copyGem(final File gemFile, final File target)
+            throws IOException {
+        FileUtils.copyFileIfModified(gemFile, target);
+        for (final String suffix : new String[] { ".sha1", ".sha256" }) {
+            final File checksum = new File(gemFile.getPath() + suffix);
+            if (checksum.exists()) {
+                FileUtils.copyFile(checksum, new File(target.getPath() + suffix));
+            }
+        }
+        final File sha256 = new File(target.getPath() + ".sha256");
+        if (sha256.exists()) {
+            this.projectHelper.attachArtifact(this.project, "gem.sha256", sha256);
+        }
+    }
+
+    private void overwriteGemspec(final File gemSpec) throws IOException {
+        final File localGemspec = new File(launchDirectory(), gemSpec.getName());
+        if ((!localGemspec.exists() || !FileUtils.contentEquals(localGemspec,
+                                                                gemSpec))
+                && this.gemspecOverwrite) {
+            getLog().info("overwrite gemspec '" + localGemspec.getName() + "'");
+            FileUtils.copyFile(gemSpec, localGemspec);
+        }
     }
 
     private String titleizedClassname(final String artifactId) {
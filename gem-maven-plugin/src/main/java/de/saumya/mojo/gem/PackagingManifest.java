@@ -0,0 +1,140 @@
+/**
+ *
+ */
+package de.saumya.mojo.gem;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import org.codehaus.plexus.util.IOUtil;
+
+import de.saumya.mojo.ruby.Digests;
+
+/**
+ * manifest of the inputs of a packaged gem: settings plus path, size and
+ * content hash of each input file. when the inputs of the next build match
+ * the manifest the gem from the last build can be used as is. the hash of a
+ * file gets only recomputed when its size or modification time changed.
+ */
+class PackagingManifest {
+
+    private static final String       FILE     = "file:";
+
+    private static final String       GEM      = "gem";
+
+    private final File                file;
+
+    private final Properties          previous = new Properties();
+
+    private final Map<String, String> current  = new TreeMap<String, String>();
+
+    PackagingManifest(final File file) {
+        this.file = file;
+        if (file.exists()) {
+            InputStream in = null;
+            try {
+                in = new FileInputStream(file);
+                this.previous.load(in);
+            }
+            catch (final IOException e) {
+                this.previous.clear();
+            }
+            finally {
+                IOUtil.close(in);
+            }
+        }
+    }
+
+    void add(final String key, final Object value) {
+        this.current.put(key, String.valueOf(value));
+    }
+
+    void add(final File input) throws IOException {
+        final String key = FILE + input.getAbsolutePath();
+        if (!input.isFile()) {
+            this.current.put(key, "-");
+            return;
+        }
+        final String stamp = input.length() + "," + input.lastModified() + ",";
+        final String last = this.previous.getProperty(key);
+        if (last != null && last.startsWith(stamp)) {
+            this.current.put(key, last);
+        }
+        else {
+            this.current.put(key, stamp + hash(input));
+        }
+    }
+
+    /**
+     * @return the gem of the last build if it was built from the same
+     *         inputs, otherwise null
+     */
+    File upToDateGem() {
+        final String gem = this.previous.getProperty(GEM);
+        if (gem == null) {
+            return null;
+        }
+        final String[] parts = gem.split(",", 3);
+        final File gemFile = new File(parts[2]);
+        if (!gemFile.isFile()
+                || !(gemFile.length() + "," + gemFile.lastModified()).equals(parts[0]
+                        + "," + parts[1])) {
+            return null;
+        }
+        int count = 0;
+        for (final Object key : this.previous.keySet()) {
+            if (!GEM.equals(key)) {
+                count++;
+            }
+        }
+        if (count != this.current.size()) {
+            return null;
+        }
+        for (final Map.Entry<String, String> entry : this.current.entrySet()) {
+            final String last = this.previous.getProperty(entry.getKey());
+            if (entry.getKey().startsWith(FILE)
+                    ? !content(entry.getValue()).equals(content(last))
+                    : !entry.getValue().equals(last)) {
+                return null;
+            }
+        }
+        return gemFile;
+    }
+
+    void store(final File gemFile) throws IOException {
+        final Properties manifest = new Properties();
+        manifest.putAll(this.current);
+        manifest.setProperty(GEM, gemFile.length() + ","
+                + gemFile.lastModified() + "," + gemFile.getAbsolutePath());
+        this.file.getParentFile().mkdirs();
+        final OutputStream out = new FileOutputStream(this.file);
+        try {
+            manifest.store(out, "inputs of the gem packaging");
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    /**
+     * the size and hash of a file entry without the modification time.
+     */
+    private String content(final String value) {
+        if (value == null) {
+            return "";
+        }
+        final String[] parts = value.split(",", 3);
+        return parts.length == 3 ? parts[0] + "," + parts[2] : value;
+    }
+
+    private String hash(final File input) throws IOException {
+        return Digests.sha1(input);
+    }
+}
@@ -0,0 +1,188 @@
+package de.saumya.mojo.gem;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.model.Developer;
+import org.apache.maven.model.License;
+import org.apache.maven.model.Model;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.FileUtils;
+
+import de.saumya.mojo.gems.gem.Gem;
+import de.saumya.mojo.gems.gem.GemFileEntry;
+import de.saumya.mojo.gems.spec.GemDependency;
+import de.saumya.mojo.gems.spec.GemSpecification;
+
+public class GemspecWriterTest extends TestCase {
+
+    private File             base;
+
+    private GemspecWriter    writer;
+
+    private GemSpecification spec;
+
+    private String           gemspec;
+
+    @Override
+    public void setUp() throws Exception {
+        this.base = new File("target/gemspec-writer").getAbsoluteFile();
+        FileUtils.deleteDirectory(this.base);
+        write("lib/hello.rb");
+        write("lib/hello/world.rb");
+        write("lib/hello/.hidden");
+        write("spec/hello_spec.rb");
+        write("spec/spec_helper.rb");
+        write("bin/hello");
+        write("LICENSE");
+        write("NOTES.txt");
+        write("doc/guide.md");
+        write("doc/api/index.md");
+        write("pom.xml");
+
+        final Model model = new Model();
+        model.setGroupId("rubygems");
+        model.setArtifactId("hello");
+        model.setVersion("1.2.0-SNAPSHOT");
+        model.setPackaging("gem");
+        model.setName("hello world");
+        model.setDescription("says 'hello'");
+        model.setUrl("http://example.com/hello");
+        final Developer developer = new Developer();
+        developer.setName("Jane Doe");
+        developer.setEmail("jane@example.com");
+        model.addDeveloper(developer);
+        final License license = new License();
+        license.setName("MIT");
+        // relative to the directory of the gemspec
+        license.setUrl("./LICENSE");
+        model.addLicense(license);
+        final MavenProject project = new MavenProject(model);
+        project.setFile(new File(this.base, "pom.xml"));
+        project.getBuild().setDirectory(new File(this.base, "target").getPath());
+        project.setArtifact(new DefaultArtifact("rubygems",
+                "hello",
+                "1.2.0-SNAPSHOT",
+                "compile",
+                "gem",
+                null,
+                new DefaultArtifactHandler("gem")));
+
+        this.writer = new GemspecWriter(new File(this.base,
+                "target/hello.gemspec"), project, new GemArtifact(project));
+        this.writer.appendPath("lib");
+        this.writer.appendTestPath("spec");
+        // globs without a directory part
+        this.writer.appendFiles("*.txt,doc/*.md");
+        this.writer.appendList("executables", "hello");
+        this.writer.appendDependency("rake", "[0.9.2,0.9.99999.99999)");
+        this.writer.appendDependency("nokogiri", "[1.4,1.6)");
+        this.writer.appendDevelopmentDependency("rspec", "2.6.0");
+        this.writer.close();
+
+        this.spec = this.writer.gem(this.base).getSpecification();
+        this.gemspec = FileUtils.fileRead(this.writer.gemspec);
+    }
+
+    private void write(final String path) throws IOException {
+        final File file = new File(this.base, path);
+        file.getParentFile().mkdirs();
+        FileUtils.fileWrite(file.getPath(), "# " + path);
+    }
+
+    private void assertLine(final String line) {
+        assertTrue(line + " in\n" + this.gemspec,
+                   this.gemspec.contains("\n" + line + "\n"));
+    }
+
+    public void testNameAndVersion() throws Exception {
+        assertLine("  s.name = 'hello'");
+        assertEquals("hello", this.spec.getName());
+        assertLine("  s.version = '1.2.0'");
+        assertEquals("1.2.0", this.spec.getVersion().getVersion());
+        assertLine("  s.summary = 'hello world'");
+        assertEquals("hello world", this.spec.getSummary());
+        // the gemspec quotes with single quotes
+        assertLine("  s.description = 'says \"hello\"'");
+        assertEquals("says 'hello'", this.spec.getDescription());
+        assertLine("  s.authors = ['Jane Doe']");
+        assertEquals(Arrays.asList("Jane Doe"), this.spec.getAuthors());
+    }
+
+    public void testDependencies() throws Exception {
+        assertLine("  s.add_dependency 'rake', '~> 0.9.2'");
+        assertLine("  s.add_dependency 'nokogiri', ['>=1.4','<1.6']");
+        assertLine("  s.add_development_dependency 'rspec', '2.6.0'");
+
+        final List<Object> dependencies = this.spec.getDependencies();
+        assertEquals(3, dependencies.size());
+        assertDependency(dependencies.get(0),
+                         "rake",
+                         ":runtime",
+                         "[[~>, 0.9.2]]");
+        assertDependency(dependencies.get(1),
+                         "nokogiri",
+                         ":runtime",
+                         "[[>=, 1.4], [<, 1.6]]");
+        assertDependency(dependencies.get(2),
+                         "rspec",
+                         ":development",
+                         "[[=, 2.6.0]]");
+    }
+
+    private void assertDependency(final Object object,
+            final String name, final String type, final String requirements) {
+        final GemDependency dependency = (GemDependency) object;
+        assertEquals(name, dependency.getName());
+        assertEquals(type, dependency.getType());
+        assertEquals(requirements, dependency.getVersion_requirements()
+                .getRequirements()
+                .toString());
+    }
+
+    public void testFiles() throws Exception {
+        assertLine("  s.files = Dir['LICENSE']");
+        assertLine("  s.files += Dir['lib/**/*']");
+        assertLine("  s.test_files += Dir['spec/**/*_spec.rb']");
+        assertLine("  s.files += Dir['*.txt']");
+        assertLine("  s.files += Dir['doc/*.md']");
+        assertLine("  s.executables = ['hello']");
+
+        // what rubygems makes out of the globs, i.e. with the test files
+        // and executables but without hidden files
+        assertEquals(Arrays.asList("LICENSE",
+                                   "NOTES.txt",
+                                   "bin/hello",
+                                   "doc/guide.md",
+                                   "lib/hello.rb",
+                                   "lib/hello/world.rb",
+                                   "spec/hello_spec.rb"), this.spec.getFiles());
+        assertEquals(Arrays.asList("spec/hello_spec.rb"),
+                     this.spec.getTest_files());
+        assertEquals(Arrays.asList("hello"), this.spec.getExecutables());
+    }
+
+    public void testGemFiles() throws Exception {
+        final Gem gem = this.writer.gem(this.base);
+        final List<String> paths = new ArrayList<String>();
+        for (final GemFileEntry entry : gem.getGemFiles()) {
+            assertTrue(entry.getSource().isFile());
+            assertEquals(new File(this.base, entry.getPathInGem()),
+                         entry.getSource());
+            paths.add(entry.getPathInGem());
+        }
+        assertEquals(this.spec.getFiles(), paths);
+    }
+
+    public void testLicenses() throws Exception {
+        assertLine("  s.licenses << 'MIT'");
+        assertEquals(Arrays.asList("MIT"), this.spec.getLicenses());
+    }
+}
@@ -0,0 +1,124 @@
+package de.saumya.mojo.gem;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+import junit.framework.TestCase;
+
+import org.codehaus.plexus.util.FileUtils;
+
+public class PackagingManifestTest extends TestCase {
+
+    private File base;
+
+    private File manifestFile;
+
+    private File gem;
+
+    private File hello;
+
+    private File world;
+
+    @Override
+    public void setUp() throws Exception {
+        this.base = new File("target/packaging-manifest").getAbsoluteFile();
+        FileUtils.deleteDirectory(this.base);
+        this.base.mkdirs();
+        this.manifestFile = new File(this.base, "hello.manifest");
+        this.gem = write("hello-1.0.0.gem", "gem");
+        this.hello = write("lib/hello.rb", "puts 'hello'");
+        this.world = write("lib/world.rb", "puts 'world'");
+
+        final PackagingManifest manifest = manifest(this.hello, this.world);
+        assertNull(manifest.upToDateGem());
+        manifest.store(this.gem);
+    }
+
+    private File write(final String path, final String content)
+            throws Exception {
+        final File file = new File(this.base, path);
+        file.getParentFile().mkdirs();
+        FileUtils.fileWrite(file.getPath(), content);
+        // older than anything which gets written by the tests
+        file.setLastModified(file.lastModified() - 10000);
+        return file;
+    }
+
+    private PackagingManifest manifest(final File... inputs) throws Exception {
+        final PackagingManifest manifest = new PackagingManifest(this.manifestFile);
+        manifest.add("rubyBuild", false);
+        for (final File input : inputs) {
+            manifest.add(input);
+        }
+        return manifest;
+    }
+
+    public void testSameInputs() throws Exception {
+        assertEquals(this.gem, manifest(this.hello, this.world).upToDateGem());
+    }
+
+    public void testTouchedInput() throws Exception {
+        this.hello.setLastModified(this.hello.lastModified() + 5000);
+        assertEquals(this.gem, manifest(this.hello, this.world).upToDateGem());
+    }
+
+    public void testChangedInput() throws Exception {
+        FileUtils.fileWrite(this.hello.getPath(), "puts 'hallo'");
+        assertNull(manifest(this.hello, this.world).upToDateGem());
+    }
+
+    public void testStampReusesTheHash() throws Exception {
+        // a wrong hash with the right size and modification time
+        final Properties properties = new Properties();
+        final InputStream in = new FileInputStream(this.manifestFile);
+        properties.load(in);
+        in.close();
+        final String key = "file:" + this.hello.getAbsolutePath();
+        final String stamp = this.hello.length() + ","
+                + this.hello.lastModified() + ",";
+        assertTrue(properties.getProperty(key).startsWith(stamp));
+        properties.setProperty(key, stamp + "0000");
+        final OutputStream out = new FileOutputStream(this.manifestFile);
+        properties.store(out, null);
+        out.close();
+
+        // the hash gets only computed when the stamp changes
+        assertEquals(this.gem, manifest(this.hello, this.world).upToDateGem());
+        this.hello.setLastModified(this.hello.lastModified() + 5000);
+        assertNull(manifest(this.hello, this.world).upToDateGem());
+    }
+
+    public void testAddedInput() throws Exception {
+        final File other = write("lib/other.rb", "puts 'other'");
+        assertNull(manifest(this.hello, this.world, other).upToDateGem());
+    }
+
+    public void testRemovedInput() throws Exception {
+        assertNull(manifest(this.hello).upToDateGem());
+    }
+
+    public void testDeletedInput() throws Exception {
+        this.world.delete();
+        assertNull(manifest(this.hello, this.world).upToDateGem());
+    }
+
+    public void testChangedSetting() throws Exception {
+        final PackagingManifest manifest = manifest(this.hello, this.world);
+        manifest.add("rubyBuild", true);
+        assertNull(manifest.upToDateGem());
+    }
+
+    public void testChangedGem() throws Exception {
+        FileUtils.fileWrite(this.gem.getPath(), "other gem");
+        assertNull(manifest(this.hello, this.world).upToDateGem());
+    }
+
+    public void testDeletedGem() throws Exception {
+        this.gem.delete();
+        assertNull(manifest(this.hello, this.world).upToDateGem());
+    }
+}
@@ -66,6 +66,22 @@ public class GemifyMojo extends AbstractGemifyMojo {
     /** @parameter default-value="${gemify.onlySpecs}" */
     private boolean                         onlySpecs;
 
+    /**
+     * compression level of the data.tar.gz of the gems, 0-9 or -1 for the
+     * default level.
+     * 
+     * @parameter expression="${gemify.compressionLevel}" default-value="-1"
+     */
+    private int                             compressionLevel;
+
+    /**
+     * compress the data.tar.gz of the gems on all cores. needs java 7 or
+     * newer.
+     * 
+     * @parameter expression="${gemify.parallelCompression}" default-value="false"
+     */
+    private boolean                         parallelCompression;
+
     /** @component */
     private ProjectBuilder                  builder;
 
@@ -407,7 +423,9 @@ public class GemifyMojo extends AbstractGemifyMojo {
             }
             else {
                 final GemArtifact gemArtifact = this.converter.createGemFromArtifact(mavenArtifact,
-                                                                                     targetDirectory());
+                                                                                     targetDirectory(),
+                                                                                     this.compressionLevel,
+                                                                                     this.parallelCompression);
                 getLog().info("created gem: " + gemArtifact.getGemFile());
                 return gemArtifact.getGemFile();
             }
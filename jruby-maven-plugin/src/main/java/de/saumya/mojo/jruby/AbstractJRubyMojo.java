@@ -2,11 +2,16 @@ package de.saumya.mojo.jruby;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.DependencyResolutionRequiredException;
 import org.apache.maven.artifact.repository.ArtifactRepository;
 import org.apache.maven.artifact.resolver.ArtifactResolutionRequest;
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.model.Dependency;
 import org.apache.maven.model.Resource;
 import org.apache.maven.plugin.AbstractMojo;
@@ -29,6 +34,13 @@ public abstract class AbstractJRubyMojo extends AbstractMojo {
 
     private static String DEFAULT_JRUBY_VERSION = "1.6.1";
 
+    // resolved jruby-complete artifacts per maven execution request. parallel
+    // builds clone the session for each project but share the request
+    private static final Map<Object, Map<String, Artifact>> JRUBY_ARTIFACTS = new WeakHashMap<Object, Map<String, Artifact>>();
+
+    // maven execution requests which stop the jruby workers when they end
+    private static final Map<Object, Boolean> WORKER_OWNERS = new WeakHashMap<Object, Boolean>();
+
     public static final String GEM_RUBY_COMMAND = "META-INF/jruby.home/bin/gem";
 
     public static final String RAKE_RUBY_COMMAND = "META-INF/jruby.home/bin/rake";
@@ -83,6 +95,71 @@ public abstract class AbstractJRubyMojo extends AbstractMojo {
      */
     protected boolean jrubyFork;
 
+    /**
+     * when forking JRuby reuse a long running JRuby JVM for all the
+     * executions with the same JRuby version, classpath and jvm arguments
+     * instead of starting a new JVM each time. the JVM gets stopped when the
+     * maven session ends.
+     * <br/>
+     * Command line -Djruby.worker=...
+     *
+     * @parameter expression="${jruby.worker}" default-value="false"
+     */
+    protected boolean jrubyWorker;
+
+    /**
+     * when forking JRuby create a class data sharing archive for each JRuby
+     * version and classpath and use it for all the following forks. the
+     * archives are kept in the local repository. needs java 13 or newer.
+     * <br/>
+     * Command line -Djruby.cds=...
+     *
+     * @parameter expression="${jruby.cds}" default-value="false"
+     */
+    protected boolean jrubyCds;
+
+    /**
+     * after a class data sharing archive got created measure the startup of
+     * JRuby with and without the archive. this launches some extra JVMs, so
+     * it is only meant to evaluate the archives.
+     * <br/>
+     * Command line -Djruby.cds.report=...
+     *
+     * @parameter expression="${jruby.cds.report}" default-value="false"
+     */
+    protected boolean jrubyCdsReport;
+
+    /**
+     * record timing and resource usage of each JRuby execution in
+     * the jruby metrics file.
+     * <br/>
+     * Command line -Djruby.metrics=...
+     *
+     * @parameter expression="${jruby.metrics}" default-value="false"
+     */
+    protected boolean jrubyMetrics;
+
+    /**
+     * CSV file for the jruby metrics. all modules of a build share one file
+     * when this points to the same file for all of them, i.e. an absolute
+     * path.
+     * <br/>
+     * Command line -Djruby.metrics.file=...
+     *
+     * @parameter expression="${jruby.metrics.file}" default-value="${project.build.directory}/jruby-metrics.csv"
+     */
+    protected File jrubyMetricsFile;
+
+    /**
+     * file which gets all the output of the forked JRuby executions, even
+     * the lines which got skipped in the maven log on very verbose output.
+     * <br/>
+     * Command line -Djruby.outputTee=...
+     *
+     * @parameter expression="${jruby.outputTee}"
+     */
+    protected File jrubyOutputTee;
+
     /**
      * verbose jruby related output
      * <br/>
@@ -119,6 +196,14 @@ public abstract class AbstractJRubyMojo extends AbstractMojo {
      */
     protected MavenProject project;
 
+    /**
+     * maven session for internal use.
+     *
+     * @parameter expression="${session}"
+     * @readonly
+     */
+    protected MavenSession session;
+
     /**
      * local repository for internal use.
      *
@@ -155,7 +240,7 @@ public abstract class AbstractJRubyMojo extends AbstractMojo {
     protected ScriptFactory newScriptFactory(Artifact artifact) throws MojoExecutionException {
         try {
             final ScriptFactory factory = new ScriptFactory(this.logger,
-                    this.classRealm, resolveJRUBYCompleteArtifact().getFile(),
+                    this.classRealm, artifact.getFile(),
                     this.project.getTestClasspathElements(), this.jrubyFork);
             return factory;
         } catch (final DependencyResolutionRequiredException e) {
@@ -178,6 +263,21 @@ public abstract class AbstractJRubyMojo extends AbstractMojo {
 
         this.logger = new MojoLogger(this.jrubyVerbose, getLog());
         this.factory = newScriptFactory();
+        if (this.jrubyWorker) {
+            this.factory.useWorker(workerOwner());
+        }
+        this.factory.setCacheDirectory(new File(this.localRepository.getBasedir(),
+                ".cache/jruby-maven-plugins"));
+        if (this.jrubyCds) {
+            this.factory.useClassDataSharing(this.jrubyCdsReport);
+        }
+        this.factory.setOutputTee(this.jrubyOutputTee);
+        if (this.jrubyMetrics) {
+            this.factory.useMetrics(this.jrubyMetricsFile,
+                    this.project.getGroupId() + ":"
+                            + this.project.getArtifactId() + ":"
+                            + getClass().getSimpleName());
+        }
         this.factory.addJvmArgs(this.jrubyJvmArgs);
         this.factory.addSwitches(this.jrubySwitches);
 
@@ -215,12 +315,20 @@ public abstract class AbstractJRubyMojo extends AbstractMojo {
 
     private Artifact resolveJRUBYCompleteArtifact(final Artifact artifact)
             throws DependencyResolutionRequiredException {
-        final ArtifactResolutionRequest request = new ArtifactResolutionRequest();
-        request.setArtifact(artifact);
-        request.setLocalRepository(this.localRepository);
-        request.setRemoteRepositories(this.project
-                .getRemoteArtifactRepositories());
-        this.repositorySystem.resolve(request);
+        final Artifact cached = cachedArtifact(artifact);
+        if (cached != null) {
+            artifact.setFile(cached.getFile());
+            artifact.setResolved(true);
+        }
+        else {
+            final ArtifactResolutionRequest request = new ArtifactResolutionRequest();
+            request.setArtifact(artifact);
+            request.setLocalRepository(this.localRepository);
+            request.setRemoteRepositories(this.project
+                    .getRemoteArtifactRepositories());
+            this.repositorySystem.resolve(request);
+            cacheArtifact(artifact);
+        }
 
         if (this.jrubyVerbose) {
             getLog().info("jruby version   : " + artifact.getVersion());
@@ -230,6 +338,65 @@ public abstract class AbstractJRubyMojo extends AbstractMojo {
         return artifact;
     }
 
+    private static String key(final Artifact artifact) {
+        return artifact.getGroupId() + ":" + artifact.getArtifactId() + ":"
+                + artifact.getVersion();
+    }
+
+    private Artifact cachedArtifact(final Artifact artifact) {
+        if (this.session == null) {
+            return null;
+        }
+        synchronized (JRUBY_ARTIFACTS) {
+            final Map<String, Artifact> artifacts = JRUBY_ARTIFACTS.get(sessionKey());
+            final Artifact cached = artifacts == null
+                    ? null
+                    : artifacts.get(key(artifact));
+            return cached != null && cached.getFile() != null
+                    && cached.getFile().exists() ? cached : null;
+        }
+    }
+
+    private Object sessionKey() {
+        return this.session.getRequest() == null
+                ? this.session
+                : this.session.getRequest();
+    }
+
+    /**
+     * @return the maven execution request which stops the jruby workers when
+     *         the session ends or null without session
+     */
+    private Object workerOwner() {
+        if (this.session == null || this.session.getRequest() == null) {
+            return null;
+        }
+        final MavenExecutionRequest request = this.session.getRequest();
+        synchronized (WORKER_OWNERS) {
+            if (!WORKER_OWNERS.containsKey(request)) {
+                WORKER_OWNERS.put(request, Boolean.TRUE);
+                request.setExecutionListener(WorkerShutdown.wrap(request.getExecutionListener(),
+                                                                 request));
+            }
+        }
+        return request;
+    }
+
+    private void cacheArtifact(final Artifact artifact) {
+        if (this.session == null || artifact.getFile() == null
+                || !artifact.getFile().exists()) {
+            return;
+        }
+        synchronized (JRUBY_ARTIFACTS) {
+            Map<String, Artifact> artifacts = JRUBY_ARTIFACTS.get(sessionKey());
+            if (artifacts == null) {
+                artifacts = new HashMap<String, Artifact>();
+                JRUBY_ARTIFACTS.put(sessionKey(), artifacts);
+            }
+            artifacts.put(key(artifact), artifact);
+        }
+    }
+
     protected Artifact resolveJRUBYCompleteArtifact()
             throws DependencyResolutionRequiredException,
             MojoExecutionException {
@@ -53,7 +53,7 @@ public class JRubyMojo extends AbstractJRubyMojo {
     protected File outputFile = null;
 
     /**
-     * directory of gem home to use when forking JRuby.
+     * directory of gem home to use for JRuby.
      * <br/>
      * Command line -Dgem.home=...
      *
@@ -63,7 +63,7 @@ public class JRubyMojo extends AbstractJRubyMojo {
     protected File          gemHome;
 
     /**
-     * directory of JRuby path to use when forking JRuby.
+     * directory of JRuby path to use for JRuby.
      * <br/>
      * Command line -Dgem.path=...
      *
@@ -0,0 +1,58 @@
+/**
+ *
+ */
+package de.saumya.mojo.jruby;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import org.apache.maven.execution.ExecutionListener;
+
+import de.saumya.mojo.ruby.script.ScriptFactory;
+
+/**
+ * execution listener which stops the jruby workers of a maven session when
+ * the session ends. all the events get passed on to the listener it replaces.
+ */
+class WorkerShutdown implements InvocationHandler {
+
+    private final ExecutionListener listener;
+
+    private final Object            owner;
+
+    private WorkerShutdown(final ExecutionListener listener, final Object owner) {
+        this.listener = listener;
+        this.owner = owner;
+    }
+
+    static ExecutionListener wrap(final ExecutionListener listener,
+            final Object owner) {
+        // a proxy, so all the methods of the listener get passed on
+        return (ExecutionListener) Proxy.newProxyInstance(WorkerShutdown.class.getClassLoader(),
+                                                          new Class<?>[] { ExecutionListener.class },
+                                                          new WorkerShutdown(listener,
+                                                                  owner));
+    }
+
+    public Object invoke(final Object proxy, final Method method,
+            final Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            return method.invoke(this, args);
+        }
+        try {
+            return this.listener == null
+                    ? null
+                    : method.invoke(this.listener, args);
+        }
+        catch (final InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+        finally {
+            if ("sessionEnded".equals(method.getName())) {
+                ScriptFactory.stopWorkers(this.owner);
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package de.saumya.mojo.gems;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.plexus.util.IOUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * compares the version conversion with the former regular expressions. the corpus are the version patterns of maven
+ * central in versions.txt of the test resources. run it with
+ *
+ * <pre>
+ * mvn -Pbenchmark verify
+ * </pre>
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+public class Maven2GemVersionConverterBenchmark
+{
+    private String[] versions;
+
+    private final LegacyMaven2GemVersionConverter legacy = new LegacyMaven2GemVersionConverter();
+
+    private final Maven2GemVersionConverter converter = new Maven2GemVersionConverter();
+
+    private final Maven2GemVersionConverter cached = new Maven2GemVersionConverter( 1024 );
+
+    @Setup
+    public void setup()
+        throws IOException
+    {
+        versions =
+            IOUtil.toString( Thread.currentThread().getContextClassLoader().getResourceAsStream( "versions.txt" ) )
+                .trim().split( "\\s+" );
+    }
+
+    @Benchmark
+    public void legacy( Blackhole blackhole )
+    {
+        for ( String version : versions )
+        {
+            blackhole.consume( legacy.createGemVersion( version ) );
+        }
+    }
+
+    @Benchmark
+    public void tokenizer( Blackhole blackhole )
+    {
+        for ( String version : versions )
+        {
+            blackhole.consume( converter.createGemVersion( version ) );
+        }
+    }
+
+    @Benchmark
+    public void cached( Blackhole blackhole )
+    {
+        for ( String version : versions )
+        {
+            blackhole.consume( cached.createGemVersion( version ) );
+        }
+    }
+}
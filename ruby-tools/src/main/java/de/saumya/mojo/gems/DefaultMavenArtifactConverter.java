@@ -1,13 +1,17 @@
 package de.saumya.mojo.gems;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.zip.Deflater;
 
 import org.apache.maven.model.Dependency;
 import org.apache.maven.model.Developer;
@@ -91,7 +95,7 @@ public class DefaultMavenArtifactConverter implements MavenArtifactConverter {
     @Requirement(hints = { "yaml" })
     private GemSpecificationIO              gemSpecificationIO;
 
-    private final Maven2GemVersionConverter maven2GemVersionConverter = new Maven2GemVersionConverter();
+    private final Maven2GemVersionConverter maven2GemVersionConverter = new Maven2GemVersionConverter(1024);
 
     public boolean canConvert(final MavenArtifact artifact) {
         // TODO: this is where we filter currently what to convert.
@@ -241,6 +245,15 @@ public class DefaultMavenArtifactConverter implements MavenArtifactConverter {
 
     public GemArtifact createGemFromArtifact(final MavenArtifact artifact,
             final File target) throws IOException {
+        return createGemFromArtifact(artifact,
+                                     target,
+                                     Deflater.DEFAULT_COMPRESSION,
+                                     false);
+    }
+
+    public GemArtifact createGemFromArtifact(final MavenArtifact artifact,
+            final File target, final int compressionLevel,
+            final boolean parallelCompression) throws IOException {
         final GemSpecification gemspec = createSpecification(artifact);
 
         if (target == null || (target.exists() && !target.isDirectory())) {
@@ -248,6 +261,8 @@ public class DefaultMavenArtifactConverter implements MavenArtifactConverter {
         }
 
         final Gem gem = new Gem(gemspec);
+        gem.setCompressionLevel(compressionLevel);
+        gem.setParallelCompression(parallelCompression);
 
         if (artifact.getArtifactFile() != null) {
             gem.addFile(artifact.getArtifactFile(), createLibFileName(artifact,
@@ -537,13 +552,13 @@ public class DefaultMavenArtifactConverter implements MavenArtifactConverter {
         final File targetFile = new File(target, getGemFileName(gemspec)
                 + "spec");
 
-        FileWriter writer = null;
+        OutputStream out = null;
         try {
-            writer = new FileWriter(targetFile);
-            writer.append(this.gemSpecificationIO.write(gemspec));
+            out = new BufferedOutputStream(new FileOutputStream(targetFile));
+            this.gemSpecificationIO.write(gemspec, out);
         }
         finally {
-            IOUtil.close(writer);
+            IOUtil.close(out);
         }
         return targetFile;
     }
@@ -1,5 +1,7 @@
 package de.saumya.mojo.gems;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 /**
@@ -24,13 +26,25 @@ public class Maven2GemVersionConverter
 
     private static final Pattern goodVersionPattern = Pattern.compile( "[0-9a-zA-Z-_.]+" );
 
-    private static final Pattern numbersOnlyGemVersionPattern = Pattern.compile( "[0-9]+(\\.[0-9]+){2}(\\.[0-9]+)*" );
-
     private static final Pattern dummyGemVersionPattern = Pattern.compile( "^[^0-9].*" );
 
-    private static final Pattern majorOnlyPattern = Pattern.compile( "^[0-9]+$" );
+    private final Map<String, String> cache;
+
+    private final int cacheSize;
 
-    private static final Pattern majorMinorOnlyPattern = Pattern.compile( "^[0-9]+\\.[0-9]+$" );
+    public Maven2GemVersionConverter()
+    {
+        this( 0 );
+    }
+
+    /**
+     * @param cacheSize the number of converted versions to remember, 0 for none
+     */
+    public Maven2GemVersionConverter( int cacheSize )
+    {
+        this.cacheSize = cacheSize;
+        this.cache = cacheSize > 0 ? new ConcurrentHashMap<String, String>() : null;
+    }
 
     /**
      * Creates valid GEM version out of Maven2 version. Gem versions are "stricter" than Maven versions: they are in
@@ -48,55 +62,220 @@ public class Maven2GemVersionConverter
             throw new NullPointerException( "The passed in mavenVersion cannot be empty!" );
         }
 
-        if ( dummyGemVersionPattern.matcher( mavenVersion ).matches() )
+        if ( isNumbersOnly( mavenVersion ) )
+        {
+            // has at least two dots !!!
+            return mavenVersion;
+        }
+
+        if ( cache == null )
+        {
+            return convert( mavenVersion );
+        }
+        String gemVersion = cache.get( mavenVersion );
+        if ( gemVersion == null )
+        {
+            gemVersion = convert( mavenVersion );
+            if ( cache.size() >= cacheSize )
+            {
+                cache.clear();
+            }
+            cache.put( mavenVersion, gemVersion );
+        }
+        return gemVersion;
+    }
+
+    private String convert( String mavenVersion )
+    {
+        if ( !isDigit( mavenVersion.charAt( 0 ) ) && dummyGemVersionPattern.matcher( mavenVersion ).matches() )
         {
             if ( goodVersionPattern.matcher( mavenVersion ).matches() )
             {
-                return createGemVersion( DUMMY_PREFIX + mavenVersion );
+                return convert( DUMMY_PREFIX + mavenVersion );
             }
             else
             {
                 return DUMMY_VERSION;
             }
         }
-        else if ( numbersOnlyGemVersionPattern.matcher( mavenVersion ).matches() )
+
+        // make all lowercase for rubygems 1.3.5
+        String version = mavenVersion.toLowerCase();
+        int length = version.length();
+
+        // the main part is everything before the first '-' or '_'. it gets padded to follow the pattern
+        // "major.minor.build" - motivation: 1.0-2 should be lower then 1.0.1, i.e. the first one is variant of 1.0.0
+        int mainLength = 0;
+        int dots = 0;
+        boolean numeric = true;
+        char previous = '.';
+        while ( mainLength < length && !isSeparator( version.charAt( mainLength ) ) )
         {
-            // has at least two dots !!!
-            return mavenVersion;
+            char c = version.charAt( mainLength );
+            if ( c == '.' )
+            {
+                dots++;
+                numeric = numeric && isDigit( previous );
+            }
+            else if ( !isDigit( c ) )
+            {
+                numeric = false;
+            }
+            previous = c;
+            mainLength++;
         }
+        numeric = numeric && isDigit( previous );
 
-        // make all lowercase for rubygems 1.3.5
-        mavenVersion = mavenVersion.toLowerCase();
+        // the rest gets split into numeric and alphabetic parts with "-"/"_" becoming "."
+        StringBuilder result = new StringBuilder( length + 8 );
+        int last = OTHER;
+        int i = 0;
+        while ( i < length )
+        {
+            if ( i == mainLength && numeric && dots < 2 )
+            {
+                // TODO maybe it is better to stick to what is given instead of padding it to three parts
+                result.append( dots == 0 ? ".0.0" : ".0" );
+                last = OTHER;
+            }
+            char c = version.charAt( i );
+            int start = i;
+            if ( isDigit( c ) )
+            {
+                while ( i < length && isDigit( version.charAt( i ) ) )
+                {
+                    i++;
+                }
+                if ( last == LETTER )
+                {
+                    result.append( '.' );
+                }
+                result.append( version, start, i );
+                last = DIGIT;
+            }
+            else if ( isLetter( c ) )
+            {
+                while ( i < length && isLetter( version.charAt( i ) ) )
+                {
+                    i++;
+                }
+                if ( last == DIGIT )
+                {
+                    result.append( '.' );
+                }
+                appendQualifier( result, version.substring( start, i ) );
+                last = LETTER;
+            }
+            else if ( isSeparator( c ) )
+            {
+                while ( i < length && isSeparator( version.charAt( i ) ) )
+                {
+                    i++;
+                }
+                // two consecutive separators count as one
+                for ( int count = ( i - start + 1 ) / 2; count > 0; count-- )
+                {
+                    result.append( '.' );
+                }
+                last = OTHER;
+            }
+            else
+            {
+                result.append( c );
+                i++;
+                last = OTHER;
+            }
+        }
+        if ( mainLength == length && numeric && dots < 2 )
+        {
+            result.append( dots == 0 ? ".0.0" : ".0" );
+        }
+        return result.toString();
+    }
+
+    private static final int OTHER = 0;
 
-        // first transform the main part (everything before the first '-' or '_'
-        // to follow the pattern "major.minor.build"
-        // motivation: 1.0-2 should be lower then 1.0.1, i.e. the first one is variant of 1.0.0
-        String mainPart = mavenVersion.replaceAll( "[\\-_].*", "" );
-        String extraPart = mavenVersion.substring( mainPart.length() ).replaceAll( "[_-][_-]", "-" );
-        StringBuilder version = new StringBuilder( mainPart );
+    private static final int DIGIT = 1;
 
-        // TODO maybe it is better to stick to what is given instead of padding it to three parts
-        if ( majorOnlyPattern.matcher( mainPart ).matches() )
+    private static final int LETTER = 2;
+
+    /**
+     * shorten predefined qualifiers or replace aliases. the replacements apply to the whole alphabetic part one after
+     * the other, i.e. "crc" becomes "rc" and then "r".
+     */
+    // TODO SNAPSHOT", "final", "ga" are missing and do not sort correctly
+    private void appendQualifier( StringBuilder result, String qualifier )
+    {
+        if ( qualifier.length() > 1 )
+        {
+            for ( int i = 0; i < QUALIFIERS.length; i += 2 )
+            {
+                qualifier = replace( qualifier, QUALIFIERS[i], QUALIFIERS[i + 1] );
+            }
+        }
+        result.append( qualifier );
+    }
+
+    private static final String[] QUALIFIERS =
+        { "alpha", "a", "beta", "b", "gamma", "g", "cr", "r", "rc", "r", "sp", "s", "milestone", "m" };
+
+    private static String replace( String string, String target, String replacement )
+    {
+        int index = string.indexOf( target );
+        if ( index < 0 )
         {
-            version.append( ".0.0" );
+            return string;
         }
-        else if ( majorMinorOnlyPattern.matcher( mainPart ).matches() )
+        StringBuilder result = new StringBuilder( string.length() );
+        int start = 0;
+        while ( index >= 0 )
         {
-            version.append( ".0" );
+            result.append( string, start, index ).append( replacement );
+            start = index + target.length();
+            index = string.indexOf( target, start );
         }
+        return result.append( string, start, string.length() ).toString();
+    }
+
+    /**
+     * @return true for versions like "1.2.3" with at least three numeric parts
+     */
+    private static boolean isNumbersOnly( String version )
+    {
+        int dots = 0;
+        boolean digit = false;
+        for ( int i = 0; i < version.length(); i++ )
+        {
+            char c = version.charAt( i );
+            if ( isDigit( c ) )
+            {
+                digit = true;
+            }
+            else if ( c == '.' && digit )
+            {
+                dots++;
+                digit = false;
+            }
+            else
+            {
+                return false;
+            }
+        }
+        return digit && dots >= 2;
+    }
 
-        version.append( extraPart );
+    private static boolean isDigit( char c )
+    {
+        return c >= '0' && c <= '9';
+    }
 
-        // now the remaining transformations
-        return version.toString()
-        // split alphanumeric parts in numeric parts and alphabetic parts
-                        .replaceAll( "([0-9]+)([a-z]+)", "$1.$2" ).replaceAll( "([a-z]+)([0-9]+)", "$1.$2" )
-                        // "-"/"_" to "."
-                        .replaceAll( "-|_", "." )
-                        // shorten predefined qualifiers or replace aliases
-                        // TODO SNAPSHOT", "final", "ga" are missing and do not sort correctly
-                        .replaceAll( "alpha", "a" ).replaceAll( "beta", "b" ).replaceAll( "gamma", "g" ).replaceAll(
-                            "cr", "r" ).replaceAll( "rc", "r" ).replaceAll( "sp", "s" ).replaceAll( "milestone", "m" );
+    private static boolean isLetter( char c )
+    {
+        return c >= 'a' && c <= 'z';
+    }
 
+    private static boolean isSeparator( char c )
+    {
+        return c == '-' || c == '_';
     }
 }
@@ -71,4 +71,17 @@ public interface MavenArtifactConverter {
      */
     GemArtifact createGemFromArtifact(MavenArtifact artifact, File target)
             throws IOException;
+
+    /**
+     * Like {@link #createGemFromArtifact(MavenArtifact, File)} with the given
+     * compression of the data.tar.gz of the Gem.
+     * 
+     * @param compressionLevel
+     *            0-9 or -1 for the default level
+     * @param parallelCompression
+     *            compress on all cores
+     */
+    GemArtifact createGemFromArtifact(MavenArtifact artifact, File target,
+            int compressionLevel, boolean parallelCompression)
+            throws IOException;
 }
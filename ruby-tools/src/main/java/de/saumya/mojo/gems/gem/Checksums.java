@@ -0,0 +1,109 @@
+package de.saumya.mojo.gems.gem;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import de.saumya.mojo.ruby.Digests;
+
+/**
+ * the digests of the entries of a gem as rubygems keeps them in
+ * checksums.yaml.gz. the digests get computed while the entries are
+ * written.
+ */
+class Checksums {
+
+    // rubygems name and java name of the algorithms
+    private static final String[][]                ALGORITHMS = {
+            { "SHA1", "SHA-1" }, { "SHA256", "SHA-256" }, { "SHA512", "SHA-512" } };
+
+    private final Map<String, Map<String, String>> digests    = new LinkedHashMap<String, Map<String, String>>();
+
+    Checksums() {
+        for (final String[] algorithm : ALGORITHMS) {
+            this.digests.put(algorithm[0], new LinkedHashMap<String, String>());
+        }
+    }
+
+    /**
+     * stream which digests everything written into the given stream.
+     * closing it records the digests of the entry.
+     */
+    OutputStream digesting(final String entry, final OutputStream out)
+            throws IOException {
+        final MessageDigest[] digests = digests();
+        return new FilterOutputStream(out) {
+
+            @Override
+            public void write(final int b) throws IOException {
+                for (final MessageDigest digest : digests) {
+                    digest.update((byte) b);
+                }
+                this.out.write(b);
+            }
+
+            @Override
+            public void write(final byte[] b, final int off, final int len)
+                    throws IOException {
+                for (final MessageDigest digest : digests) {
+                    digest.update(b, off, len);
+                }
+                this.out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                record(entry, digests);
+                this.out.close();
+            }
+        };
+    }
+
+    void add(final String entry, final byte[] content) throws IOException {
+        final MessageDigest[] digests = digests();
+        for (final MessageDigest digest : digests) {
+            digest.update(content);
+        }
+        record(entry, digests);
+    }
+
+    byte[] toYamlGz() throws IOException {
+        final StringBuilder yaml = new StringBuilder("---\n");
+        for (final Map.Entry<String, Map<String, String>> algorithm : this.digests.entrySet()) {
+            yaml.append(algorithm.getKey()).append(":\n");
+            for (final Map.Entry<String, String> entry : algorithm.getValue()
+                    .entrySet()) {
+                yaml.append("  ")
+                        .append(entry.getKey())
+                        .append(": ")
+                        .append(entry.getValue())
+                        .append("\n");
+            }
+        }
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final GZIPOutputStream gzip = new GZIPOutputStream(bytes);
+        gzip.write(yaml.toString().getBytes("UTF-8"));
+        gzip.close();
+        return bytes.toByteArray();
+    }
+
+    private void record(final String entry, final MessageDigest[] digests) {
+        for (int i = 0; i < ALGORITHMS.length; i++) {
+            this.digests.get(ALGORITHMS[i][0]).put(entry,
+                                                   Digests.hex(digests[i].digest()));
+        }
+    }
+
+    private static MessageDigest[] digests() throws IOException {
+        final MessageDigest[] digests = new MessageDigest[ALGORITHMS.length];
+        for (int i = 0; i < ALGORITHMS.length; i++) {
+            digests[i] = Digests.digest(ALGORITHMS[i][1]);
+        }
+        return digests;
+    }
+}
@@ -1,18 +1,20 @@
 package de.saumya.mojo.gems.gem;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.zip.GZIPOutputStream;
 
-import org.codehaus.plexus.archiver.ArchiverException;
-import org.codehaus.plexus.archiver.gzip.GZipArchiver;
-import org.codehaus.plexus.archiver.tar.TarArchiver;
-import org.codehaus.plexus.archiver.tar.TarArchiver.TarCompressionMethod;
 import org.codehaus.plexus.component.annotations.Component;
 import org.codehaus.plexus.component.annotations.Requirement;
-import org.codehaus.plexus.logging.AbstractLogger;
-import org.codehaus.plexus.logging.Logger;
 import org.codehaus.plexus.util.FileUtils;
 
+import de.saumya.mojo.ruby.Digests;
+
 import de.saumya.mojo.gems.spec.GemSpecification;
 import de.saumya.mojo.gems.spec.GemSpecificationIO;
 
@@ -22,18 +24,48 @@ public class DefaultGemPackager implements GemPackager {
     @Requirement(hints = { "yaml" })
     private GemSpecificationIO gemSpecificationIO;
 
+    public DefaultGemPackager() {
+    }
+
+    DefaultGemPackager(final GemSpecificationIO gemSpecificationIO) {
+        this.gemSpecificationIO = gemSpecificationIO;
+    }
+
     public File createGemStub(final GemSpecification gemspec, final File target)
             throws IOException {
         return createGem(new Gem(gemspec), target);
     }
 
-    public File createGem(final Gem gem, final File target) throws IOException {
-        final File gemWorkdir = new File(File.createTempFile("nexus-gem-work",
-                                                             ".tmp")
-                .getParentFile(), "wd-" + System.currentTimeMillis());
+    static class LeveledGZIPOutputStream extends GZIPOutputStream {
+
+        LeveledGZIPOutputStream(final OutputStream out, final int level)
+                throws IOException {
+            super(out, 64 * 1024);
+            this.def.setLevel(level);
+        }
+    }
+
+    /**
+     * data.tar.gz with access to its bytes without copying them.
+     */
+    static class Spool extends ByteArrayOutputStream {
+
+        Spool() {
+            super(64 * 1024);
+        }
 
-        gemWorkdir.mkdirs();
+        byte[] buffer() {
+            return this.buf;
+        }
+    }
 
+    /**
+     * writes the gem in a single pass: data.tar.gz and metadata.gz are
+     * built in memory and the outer tar goes directly into the gem file. the
+     * digests for checksums.yaml.gz and the checksum files are computed on
+     * the way.
+     */
+    public File createGem(final Gem gem, final File target) throws IOException {
         if (!gem.getGemFiles().isEmpty()) {
             for (final GemFileEntry entry : gem.getGemFiles()) {
                 if (!entry.getSource().isFile()) {
@@ -42,92 +74,75 @@ public class DefaultGemPackager implements GemPackager {
             }
         }
 
-        // get YAML
-        final String gemspecString = this.gemSpecificationIO.write(gem.getSpecification());
+        // write the YAML of the gemspec directly into metadata.gz
+        final ByteArrayOutputStream metadata = new ByteArrayOutputStream();
+        final GZIPOutputStream metadataGz = new GZIPOutputStream(metadata);
+        this.gemSpecificationIO.write(gem.getSpecification(), metadataGz);
+        metadataGz.close();
 
-        // DEBUG
-        // FileUtils.fileWrite( gemFile.getAbsolutePath(), gemspecString );
-        // DEBUG
+        final Checksums checksums = new Checksums();
+        checksums.add("metadata.gz", metadata.toByteArray());
 
-        try {
-            // write file "metadata" (YAML of gemspec)
-            final File metadata = new File(gemWorkdir, "metadata");
-            final File metadataGz = new File(gemWorkdir, "metadata.gz");
-            FileUtils.fileWrite(metadata.getAbsolutePath(),
-                                "UTF-8",
-                                gemspecString);
-            // gzip it into metadata.gz
-            final GZipArchiver gzip = new GZipArchiver();
-            gzip.setDestFile(metadataGz);
-            gzip.addFile(metadata, "metadata.gz");
-            gzip.createArchive();
-
-            final TarArchiver tar = new TarArchiver();
-            // turn off logging
-            tar.enableLogging(new AbstractLogger(0, "nologging") {
-
-                public void warn(final String message, final Throwable throwable) {
-                }
-
-                public void info(final String message, final Throwable throwable) {
-                }
-
-                public Logger getChildLogger(final String name) {
-                    return null;
-                }
-
-                public void fatalError(final String message,
-                        final Throwable throwable) {
-                }
-
-                public void error(final String message,
-                        final Throwable throwable) {
-                }
-
-                public void debug(final String message,
-                        final Throwable throwable) {
-                }
-            });
-            final TarCompressionMethod compression = new TarCompressionMethod();
-            File dataTarGz = null;
-            if (!gem.getGemFiles().isEmpty()) {
-                // tar.gz the content into data.tar.gz
-                dataTarGz = new File(gemWorkdir, "data.tar.gz");
-                compression.setValue("gzip");
-                tar.setCompression(compression);
-                tar.setDestFile(dataTarGz);
-                for (final GemFileEntry entry : gem.getGemFiles()) {
-                    if (entry.getSource().isFile()) {
-                        tar.addFile(entry.getSource(), entry.getPathInGem());
-                    }
-                    else if (entry.getSource().isDirectory()) {
-                        tar.addDirectory(entry.getSource(),
-                                         entry.getPathInGem());
-                    }
-                }
-                tar.createArchive();
+        // tar.gz the content into data.tar.gz
+        final Spool dataTarGz = new Spool();
+        if (!gem.getGemFiles().isEmpty()) {
+            final OutputStream digesting = checksums.digesting("data.tar.gz",
+                                                               dataTarGz);
+            final OutputStream gzip;
+            if (gem.isParallelCompression()
+                    && ParallelGZIPOutputStream.isSupported()) {
+                gzip = new ParallelGZIPOutputStream(digesting,
+                        gem.getCompressionLevel());
             }
-
-            // and finally create gem by tar.gz-ing data.tar.gz and metadata.gz
-            final File gemFile = new File(target, gem.getGemFilename());
-            tar.setDestFile(gemFile);
-            compression.setValue("none");
-            tar.setCompression(compression);
-            if (dataTarGz != null) {
-                tar.addFile(dataTarGz, dataTarGz.getName());
+            else {
+                gzip = new LeveledGZIPOutputStream(digesting,
+                        gem.getCompressionLevel());
             }
-            tar.addFile(metadataGz, metadataGz.getName());
-            tar.createArchive();
+            final TarWriter data = new TarWriter(gzip);
+            for (final GemFileEntry entry : gem.getGemFiles()) {
+                data.add(entry.getPathInGem(), entry.getSource());
+            }
+            data.finish();
+            gzip.close();
+        }
 
-            return gemFile;
+        target.mkdirs();
+        final File gemFile = new File(target, gem.getGemFilename());
+        final MessageDigest sha1 = Digests.sha1();
+        final MessageDigest sha256 = Digests.digest("SHA-256");
+        OutputStream out = new FileOutputStream(gemFile);
+        if (gem.isChecksumFiles()) {
+            out = new DigestOutputStream(new DigestOutputStream(out, sha1),
+                    sha256);
         }
-        catch (final ArchiverException e) {
-            final IOException ioe = new IOException(e.getMessage());
-            ioe.initCause(e);
-            throw ioe;
+        boolean success = false;
+        try {
+            final TarWriter tar = new TarWriter(out);
+            if (!gem.getGemFiles().isEmpty()) {
+                tar.add("data.tar.gz", dataTarGz.buffer(), dataTarGz.size());
+            }
+            tar.add("metadata.gz", metadata.toByteArray());
+            tar.add("checksums.yaml.gz", checksums.toYamlGz());
+            tar.finish();
+            out.close();
+            success = true;
         }
         finally {
-            FileUtils.forceDelete(gemWorkdir);
+            if (!success) {
+                out.close();
+                gemFile.delete();
+            }
+        }
+
+        if (gem.isChecksumFiles()) {
+            // like maven repositories have them
+            FileUtils.fileWrite(gemFile.getPath() + ".sha1",
+                                "UTF-8",
+                                Digests.hex(sha1.digest()));
+            FileUtils.fileWrite(gemFile.getPath() + ".sha256",
+                                "UTF-8",
+                                Digests.hex(sha256.digest()));
         }
+        return gemFile;
     }
 }
@@ -3,6 +3,7 @@ package de.saumya.mojo.gems.gem;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.Deflater;
 
 import de.saumya.mojo.gems.spec.GemSpecification;
 
@@ -17,6 +18,12 @@ public class Gem {
 
     private final GemSpecification   spec;
 
+    private int                      compressionLevel    = Deflater.DEFAULT_COMPRESSION;
+
+    private boolean                  parallelCompression = false;
+
+    private boolean                  checksumFiles       = false;
+
     public Gem(final GemSpecification spec) {
         this.spec = spec;
     }
@@ -75,6 +82,39 @@ public class Gem {
         this.spec.addExtraRdocFile(add(source, path));
     }
 
+    /**
+     * compression level of data.tar.gz, 0-9 or -1 for the default level.
+     */
+    public void setCompressionLevel(final int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+    }
+
+    public int getCompressionLevel() {
+        return this.compressionLevel;
+    }
+
+    /**
+     * compress data.tar.gz on all cores.
+     */
+    public void setParallelCompression(final boolean parallelCompression) {
+        this.parallelCompression = parallelCompression;
+    }
+
+    public boolean isParallelCompression() {
+        return this.parallelCompression;
+    }
+
+    /**
+     * write the .sha1 and .sha256 files of the gem next to it.
+     */
+    public void setChecksumFiles(final boolean checksumFiles) {
+        this.checksumFiles = checksumFiles;
+    }
+
+    public boolean isChecksumFiles() {
+        return this.checksumFiles;
+    }
+
     public GemSpecification getSpecification() {
         return this.spec;
     }
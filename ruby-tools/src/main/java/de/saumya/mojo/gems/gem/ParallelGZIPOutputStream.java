@@ -0,0 +1,220 @@
+package de.saumya.mojo.gems.gem;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * gzip stream which deflates blocks of its input on all cores like pigz.
+ * each block ends with a sync flush so the deflated blocks concatenate to a
+ * single deflate stream, primed with the last 32k of the previous block as
+ * dictionary. the result is one ordinary gzip member which any gzip reader
+ * understands.
+ */
+class ParallelGZIPOutputStream extends FilterOutputStream {
+
+    static final int            BLOCK      = 128 * 1024;
+
+    private static final int    DICTIONARY = 32 * 1024;
+
+    // java 7 API: Deflater.deflate(byte[], int, int, int) with SYNC_FLUSH
+    private static final Method DEFLATE;
+    static {
+        Method deflate = null;
+        try {
+            deflate = Deflater.class.getMethod("deflate",
+                                               byte[].class,
+                                               int.class,
+                                               int.class,
+                                               int.class);
+        }
+        catch (final Exception e) {
+            deflate = null;
+        }
+        DEFLATE = deflate;
+    }
+
+    private static final int    SYNC_FLUSH = 2;
+
+    /**
+     * @return false if the jvm can not flush a deflater, i.e. java 5 and 6
+     */
+    static boolean isSupported() {
+        return DEFLATE != null;
+    }
+
+    private final int                        level;
+
+    private final ExecutorService            executor;
+
+    private final int                        maxPending;
+
+    private final LinkedList<Future<byte[]>> pending  = new LinkedList<Future<byte[]>>();
+
+    private final CRC32                      crc      = new CRC32();
+
+    private byte[]                           block    = new byte[BLOCK];
+
+    private int                              count    = 0;
+
+    private byte[]                           dictionary;
+
+    private long                             size     = 0;
+
+    private boolean                          finished = false;
+
+    ParallelGZIPOutputStream(final OutputStream out, final int level)
+            throws IOException {
+        super(out);
+        this.level = level;
+        final int threads = Runtime.getRuntime().availableProcessors();
+        this.maxPending = 2 * threads;
+        this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "parallel-gzip");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        // the same header as GZIPOutputStream
+        out.write(new byte[] { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0,
+                0, 0, 0, 0 });
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(final byte[] b, int off, int len) throws IOException {
+        this.crc.update(b, off, len);
+        this.size += len;
+        while (len > 0) {
+            final int n = Math.min(len, BLOCK - this.count);
+            System.arraycopy(b, off, this.block, this.count, n);
+            this.count += n;
+            off += n;
+            len -= n;
+            if (this.count == BLOCK) {
+                submit(false);
+            }
+        }
+    }
+
+    /**
+     * deflates the remaining input and writes the gzip trailer. the
+     * underlying stream stays open.
+     */
+    public void finish() throws IOException {
+        if (this.finished) {
+            return;
+        }
+        this.finished = true;
+        try {
+            submit(true);
+            while (!this.pending.isEmpty()) {
+                writeNext();
+            }
+        }
+        finally {
+            this.executor.shutdownNow();
+        }
+        final long crc = this.crc.getValue();
+        this.out.write(new byte[] { (byte) crc, (byte) (crc >> 8),
+                (byte) (crc >> 16), (byte) (crc >> 24), (byte) this.size,
+                (byte) (this.size >> 8), (byte) (this.size >> 16),
+                (byte) (this.size >> 24) });
+        this.out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        finish();
+        this.out.close();
+    }
+
+    private void submit(final boolean last) throws IOException {
+        final byte[] input = this.block;
+        final int length = this.count;
+        final byte[] dictionary = this.dictionary;
+        if (!last) {
+            // keep the tail of this block as dictionary for the next one
+            this.dictionary = new byte[DICTIONARY];
+            System.arraycopy(input, length - DICTIONARY, this.dictionary, 0,
+                             DICTIONARY);
+            this.block = new byte[BLOCK];
+            this.count = 0;
+        }
+        this.pending.add(this.executor.submit(new Callable<byte[]>() {
+
+            public byte[] call() throws Exception {
+                return deflate(input, length, dictionary, last);
+            }
+        }));
+        while (this.pending.size() > this.maxPending) {
+            writeNext();
+        }
+    }
+
+    private void writeNext() throws IOException {
+        try {
+            this.out.write(this.pending.removeFirst().get());
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while compressing");
+        }
+        catch (final ExecutionException e) {
+            final IOException ioe = new IOException("error compressing: "
+                    + e.getCause().getMessage());
+            ioe.initCause(e.getCause());
+            throw ioe;
+        }
+    }
+
+    private byte[] deflate(final byte[] input, final int length,
+            final byte[] dictionary, final boolean last) throws Exception {
+        final Deflater deflater = new Deflater(this.level, true);
+        try {
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(input, 0, length);
+            if (last) {
+                deflater.finish();
+            }
+            final ByteArrayOutputStream result = new ByteArrayOutputStream(length / 2 + 64);
+            final byte[] buffer = new byte[16 * 1024];
+            while (true) {
+                final int n = last
+                        ? deflater.deflate(buffer)
+                        : (Integer) DEFLATE.invoke(deflater,
+                                                   buffer,
+                                                   0,
+                                                   buffer.length,
+                                                   SYNC_FLUSH);
+                result.write(buffer, 0, n);
+                if (last ? deflater.finished() : n < buffer.length) {
+                    break;
+                }
+            }
+            return result.toByteArray();
+        }
+        finally {
+            deflater.end();
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package de.saumya.mojo.gems.gem;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * minimal streaming tar writer (ustar with GNU long names).
+ */
+class TarWriter {
+
+    private static final int   BLOCK  = 512;
+
+    private final OutputStream out;
+
+    private final byte[]       buffer = new byte[64 * 1024];
+
+    private int                count;
+
+    private long               position;
+
+    TarWriter(final OutputStream out) {
+        this.out = out;
+    }
+
+    void add(final String name, final File source) throws IOException {
+        header(name,
+               source.length(),
+               isExecutable(source) ? 0755 : 0644,
+               source.lastModified());
+        final InputStream in = new BufferedInputStream(new FileInputStream(source));
+        try {
+            final byte[] bytes = new byte[8 * 1024];
+            long remaining = source.length();
+            int n = in.read(bytes);
+            while (n != -1 && remaining > 0) {
+                n = (int) Math.min(n, remaining);
+                write(bytes, 0, n);
+                remaining -= n;
+                n = in.read(bytes);
+            }
+            if (remaining > 0) {
+                throw new IOException("file changed while packaging: " + source);
+            }
+        }
+        finally {
+            in.close();
+        }
+        pad();
+    }
+
+    void add(final String name, final byte[] content) throws IOException {
+        add(name, content, content.length);
+    }
+
+    /**
+     * adds the first length bytes of content.
+     */
+    void add(final String name, final byte[] content, final int length)
+            throws IOException {
+        header(name, length, 0644, System.currentTimeMillis());
+        write(content, 0, length);
+        pad();
+    }
+
+    /**
+     * writes the end of archive marker. the underlying stream stays open.
+     */
+    void finish() throws IOException {
+        write(new byte[2 * BLOCK], 0, 2 * BLOCK);
+        flushBuffer();
+        this.out.flush();
+    }
+
+    private static boolean isExecutable(final File file) {
+        try {
+            // java 6 API
+            return (Boolean) File.class.getMethod("canExecute").invoke(file);
+        }
+        catch (final Exception e) {
+            return false;
+        }
+    }
+
+    private void header(final String name, final long size, final int mode,
+            final long modified) throws IOException {
+        final byte[] bytes = name.getBytes("UTF-8");
+        if (bytes.length > 100) {
+            final byte[] longName = new byte[bytes.length + 1];
+            System.arraycopy(bytes, 0, longName, 0, bytes.length);
+            write(header(bytes("././@LongLink"), longName.length, 0644, 0,
+                         'L'), 0, BLOCK);
+            write(longName, 0, longName.length);
+            pad();
+        }
+        write(header(bytes, size, mode, modified / 1000, '0'), 0, BLOCK);
+    }
+
+    private static byte[] header(final byte[] name, final long size,
+            final int mode, final long modified, final char type)
+            throws IOException {
+        if (size > 077777777777L) {
+            throw new IOException("entry too big for tar: " + size);
+        }
+        final byte[] header = new byte[BLOCK];
+        System.arraycopy(name, 0, header, 0, Math.min(name.length, 100));
+        octal(header, 100, 8, mode);
+        octal(header, 108, 8, 0);
+        octal(header, 116, 8, 0);
+        octal(header, 124, 12, size);
+        octal(header, 136, 12, modified);
+        header[156] = (byte) type;
+        System.arraycopy(bytes("ustar\u000000"), 0, header, 257, 8);
+        System.arraycopy(bytes("root"), 0, header, 265, 4);
+        System.arraycopy(bytes("root"), 0, header, 297, 4);
+
+        // checksum with the checksum field itself counted as spaces
+        for (int i = 148; i < 156; i++) {
+            header[i] = ' ';
+        }
+        long checksum = 0;
+        for (final byte b : header) {
+            checksum += b & 0xff;
+        }
+        octal(header, 148, 7, checksum);
+        return header;
+    }
+
+    /**
+     * zero padded octal number terminated by a null byte.
+     */
+    private static void octal(final byte[] header, final int offset,
+            final int length, final long value) {
+        final String digits = Long.toOctalString(value);
+        int index = offset;
+        for (int i = digits.length(); i < length - 1; i++) {
+            header[index++] = '0';
+        }
+        for (int i = 0; i < digits.length(); i++) {
+            header[index++] = (byte) digits.charAt(i);
+        }
+        header[index] = 0;
+    }
+
+    private static byte[] bytes(final String value) throws IOException {
+        return value.getBytes("UTF-8");
+    }
+
+    private void pad() throws IOException {
+        final int padding = (int) ((BLOCK - this.position % BLOCK) % BLOCK);
+        if (padding > 0) {
+            write(new byte[padding], 0, padding);
+        }
+    }
+
+    private void write(final byte[] b, int off, int len) throws IOException {
+        this.position += len;
+        while (len > 0) {
+            if (this.count == this.buffer.length) {
+                flushBuffer();
+            }
+            final int n = Math.min(len, this.buffer.length - this.count);
+            System.arraycopy(b, off, this.buffer, this.count, n);
+            this.count += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (this.count > 0) {
+            this.out.write(this.buffer, 0, this.count);
+            this.count = 0;
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package de.saumya.mojo.gems.spec;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 public interface GemSpecificationIO
 {
@@ -9,4 +11,17 @@ public interface GemSpecificationIO
 
     String write( GemSpecification gemspec )
         throws IOException;
+
+    /**
+     * reads the YAML (UTF-8) of the specification from the stream.
+     */
+    GemSpecification read( InputStream in )
+        throws IOException;
+
+    /**
+     * writes the YAML of the specification as UTF-8 into the stream. the
+     * stream stays open.
+     */
+    void write( GemSpecification gemspec, OutputStream out )
+        throws IOException;
 }
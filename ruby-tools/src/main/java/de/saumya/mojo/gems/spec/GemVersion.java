@@ -1,13 +1,22 @@
 package de.saumya.mojo.gems.spec;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * Gem::Version
- * 
+ *
  * @author cstamas
  */
-public class GemVersion {
+public class GemVersion implements Comparable<GemVersion> {
     private String version;
 
+    // the canonical segments, parsed once: a string segment has its entry in
+    // strings, a numeric one has a null there and its value in numbers
+    private long[] numbers;
+    private String[] strings;
+
     public GemVersion() {
     }
 
@@ -21,6 +30,136 @@ public class GemVersion {
 
     public void setVersion(final String version) {
         this.version = version;
+        this.numbers = null;
+        this.strings = null;
+    }
+
+    /**
+     * orders like rubygems does: numeric segments compare as numbers,
+     * missing segments count as 0 and a string segment marks a prerelease
+     * which is lower than any number, i.e. 1.0.a < 1.0 < 1.0.1
+     */
+    public int compareTo(final GemVersion other) {
+        parse();
+        other.parse();
+        final int size = Math.max(this.numbers.length, other.numbers.length);
+        for (int i = 0; i < size; i++) {
+            final String lhs = i < this.strings.length ? this.strings[i] : null;
+            final String rhs = i < other.strings.length ? other.strings[i] : null;
+            if (lhs != null && rhs != null) {
+                final int result = lhs.compareTo(rhs);
+                if (result != 0) {
+                    return result;
+                }
+            }
+            else if (lhs != null) {
+                return -1;
+            }
+            else if (rhs != null) {
+                return 1;
+            }
+            else {
+                final long l = i < this.numbers.length ? this.numbers[i] : 0;
+                final long r = i < other.numbers.length ? other.numbers[i] : 0;
+                if (l != r) {
+                    return l < r ? -1 : 1;
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * sorts the given versions in place from the lowest to the highest.
+     * each version gets parsed only once.
+     */
+    public static void sort(final List<String> versions) {
+        final GemVersion[] sorted = new GemVersion[versions.size()];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = new GemVersion(versions.get(i));
+            sorted[i].parse();
+        }
+        Arrays.sort(sorted);
+        for (int i = 0; i < sorted.length; i++) {
+            versions.set(i, sorted[i].version);
+        }
+    }
+
+    private void parse() {
+        if (this.numbers != null) {
+            return;
+        }
+        // like Gem::Version: a dash separates a prerelease
+        final String version = this.version == null ? "" : this.version.trim()
+                .replace("-", ".pre.");
+        final List<Object> segments = new ArrayList<Object>();
+        int start = 0;
+        while (start < version.length()) {
+            final char c = version.charAt(start);
+            int end = start + 1;
+            if (c >= '0' && c <= '9') {
+                while (end < version.length() && isDigit(version.charAt(end))) {
+                    end++;
+                }
+                segments.add(number(version.substring(start, end)));
+            }
+            else if (Character.isLetter(c)) {
+                while (end < version.length()
+                        && Character.isLetter(version.charAt(end))) {
+                    end++;
+                }
+                segments.add(version.substring(start, end));
+            }
+            start = end;
+        }
+
+        // canonical segments: trailing zeros of the release part and of the
+        // prerelease part do not count
+        int firstString = 0;
+        while (firstString < segments.size()
+                && segments.get(firstString) instanceof Long) {
+            firstString++;
+        }
+        final List<Object> canonical = new ArrayList<Object>();
+        canonical.addAll(dropTrailingZeros(segments.subList(0, firstString)));
+        canonical.addAll(dropTrailingZeros(segments.subList(firstString,
+                                                            segments.size())));
+
+        final long[] numbers = new long[canonical.size()];
+        final String[] strings = new String[canonical.size()];
+        for (int i = 0; i < numbers.length; i++) {
+            final Object segment = canonical.get(i);
+            if (segment instanceof Long) {
+                numbers[i] = (Long) segment;
+            }
+            else {
+                strings[i] = (String) segment;
+            }
+        }
+        this.strings = strings;
+        this.numbers = numbers;
+    }
+
+    private static boolean isDigit(final char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static Long number(final String digits) {
+        try {
+            return Long.valueOf(digits);
+        }
+        catch (final NumberFormatException e) {
+            // too many digits
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static List<Object> dropTrailingZeros(final List<Object> segments) {
+        int end = segments.size();
+        while (end > 0 && Long.valueOf(0).equals(segments.get(end - 1))) {
+            end--;
+        }
+        return segments.subList(0, end);
     }
 
     @Override
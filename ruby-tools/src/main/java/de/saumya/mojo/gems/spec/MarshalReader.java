@@ -0,0 +1,282 @@
+package de.saumya.mojo.gems.spec;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * reader for the ruby Marshal format 4.8 as far as needed for the spec
+ * indexes of rubygems: nil, true, false, fixnums, symbols, strings, arrays,
+ * hashes, user marshaled objects (Gem::Version) and links. strings become
+ * java strings, arrays lists, user marshaled objects an
+ * {@link UserMarshal}. strings are shared, so equal strings of an index
+ * become the same instance.
+ * <p>
+ * links refer to any earlier object by its position, so the reader needs to
+ * remember the objects. when streaming a top level array it remembers only
+ * the strings, user marshaled objects and numbers which rubygems links to;
+ * arrays and hashes of the elements are left to the handler and a link to
+ * them is an error.
+ */
+class MarshalReader {
+
+    /**
+     * object of a class with marshal_dump, i.e. Gem::Version.
+     */
+    static class UserMarshal {
+        final String className;
+        final Object data;
+
+        UserMarshal(final String className, final Object data) {
+            this.className = className;
+            this.data = data;
+        }
+    }
+
+    /**
+     * callback for the elements of the top level array, so the whole array
+     * does not need to be kept in memory.
+     */
+    interface ElementHandler {
+        void element(Object element) throws IOException;
+    }
+
+    // position of an object which is not kept
+    private static final Object       NOT_KEPT  = new Object();
+
+    private final InputStream         in;
+
+    private final List<String>        symbols   = new ArrayList<String>();
+
+    private final List<Object>        objects   = new ArrayList<Object>();
+
+    private final Map<String, String> strings   = new HashMap<String, String>();
+
+    private byte[]                    buffer    = new byte[256];
+
+    private boolean                   streaming = false;
+
+    MarshalReader(final InputStream in) {
+        this.in = in;
+    }
+
+    Object read() throws IOException {
+        header();
+        return object();
+    }
+
+    /**
+     * reads a top level array element by element.
+     */
+    void readArray(final ElementHandler handler) throws IOException {
+        header();
+        if (readByte() != '[') {
+            throw new IOException("marshal data is not an array");
+        }
+        this.streaming = true;
+        // the array itself is the first object
+        this.objects.add(NOT_KEPT);
+        final long size = fixnum();
+        for (long i = 0; i < size; i++) {
+            handler.element(object());
+        }
+    }
+
+    private void header() throws IOException {
+        final int major = readByte();
+        final int minor = readByte();
+        if (major != 4 || minor > 8) {
+            throw new IOException("unsupported marshal version " + major + "."
+                    + minor);
+        }
+    }
+
+    private Object object() throws IOException {
+        final int type = readByte();
+        switch (type) {
+        case '0':
+            return null;
+        case 'T':
+            return Boolean.TRUE;
+        case 'F':
+            return Boolean.FALSE;
+        case 'i':
+            return fixnum();
+        case ':':
+            return symbol();
+        case ';':
+            return this.symbols.get((int) fixnum());
+        case '@': {
+            final int index = (int) fixnum();
+            final Object object = this.objects.get(index);
+            if (object == NOT_KEPT) {
+                throw new IOException("link to an array or hash of an element: "
+                        + index);
+            }
+            return object;
+        }
+        case '"':
+            return register(string());
+        case 'I': {
+            // instance variables like the encoding of a string
+            final Object object = object();
+            final long count = fixnum();
+            for (long i = 0; i < count; i++) {
+                object();
+                object();
+            }
+            return object;
+        }
+        case '[': {
+            final List<Object> array = new ArrayList<Object>();
+            container(array);
+            final long size = fixnum();
+            for (long i = 0; i < size; i++) {
+                array.add(object());
+            }
+            return array;
+        }
+        case '{':
+        case '}': {
+            final Map<Object, Object> hash = new LinkedHashMap<Object, Object>();
+            container(hash);
+            final long size = fixnum();
+            for (long i = 0; i < size; i++) {
+                hash.put(object(), object());
+            }
+            if (type == '}') {
+                // default value
+                object();
+            }
+            return hash;
+        }
+        case 'U': {
+            final String className = (String) object();
+            final int index = this.objects.size();
+            register(null);
+            final UserMarshal user = new UserMarshal(className, object());
+            this.objects.set(index, user);
+            return user;
+        }
+        case 'u': {
+            final String className = (String) object();
+            return register(new UserMarshal(className, string()));
+        }
+        case 'o': {
+            // plain object, only the instance variables are of interest
+            final String className = (String) object();
+            final Map<Object, Object> ivars = new LinkedHashMap<Object, Object>();
+            final int index = this.objects.size();
+            register(null);
+            final long count = fixnum();
+            for (long i = 0; i < count; i++) {
+                ivars.put(object(), object());
+            }
+            final UserMarshal user = new UserMarshal(className, ivars);
+            this.objects.set(index, user);
+            return user;
+        }
+        case 'f':
+            return register(Double.valueOf(string()));
+        case 'l': {
+            // bignum: sign, length in shorts, little endian bytes
+            final int sign = readByte();
+            final long length = fixnum() * 2;
+            long value = 0;
+            for (int i = 0; i < length; i++) {
+                final long b = readByte();
+                if (i < 8) {
+                    value |= b << (8 * i);
+                }
+            }
+            return register(sign == '-' ? -value : value);
+        }
+        default:
+            throw new IOException("unsupported marshal type '" + (char) type
+                    + "'");
+        }
+    }
+
+    private Object register(final Object object) {
+        this.objects.add(object);
+        return object;
+    }
+
+    /**
+     * the arrays and hashes of streamed elements, i.e. the spec tuples, are
+     * not kept, rubygems never links to them.
+     */
+    private void container(final Object container) {
+        this.objects.add(this.streaming ? NOT_KEPT : container);
+    }
+
+    private String symbol() throws IOException {
+        final String symbol = string();
+        this.symbols.add(symbol);
+        return symbol;
+    }
+
+    /**
+     * strings of rubygems are plain ASCII or UTF-8.
+     */
+    private String string() throws IOException {
+        final int length = (int) fixnum();
+        if (length > this.buffer.length) {
+            this.buffer = new byte[Math.max(length, this.buffer.length * 2)];
+        }
+        int read = 0;
+        while (read < length) {
+            final int n = this.in.read(this.buffer, read, length - read);
+            if (n == -1) {
+                throw new EOFException("truncated marshal data");
+            }
+            read += n;
+        }
+        final String string = new String(this.buffer, 0, length, "UTF-8");
+        final String shared = this.strings.get(string);
+        if (shared != null) {
+            return shared;
+        }
+        this.strings.put(string, string);
+        return string;
+    }
+
+    private long fixnum() throws IOException {
+        final int c = (byte) readByte();
+        if (c == 0) {
+            return 0;
+        }
+        if (c > 0) {
+            if (c > 4) {
+                return c - 5;
+            }
+            long value = 0;
+            for (int i = 0; i < c; i++) {
+                value |= (long) readByte() << (8 * i);
+            }
+            return value;
+        }
+        if (c < -4) {
+            return c + 5;
+        }
+        long value = -1;
+        for (int i = 0; i < -c; i++) {
+            value &= ~(0xffL << (8 * i));
+            value |= (long) readByte() << (8 * i);
+        }
+        return value;
+    }
+
+    private int readByte() throws IOException {
+        final int b = this.in.read();
+        if (b == -1) {
+            throw new EOFException("truncated marshal data");
+        }
+        return b;
+    }
+}
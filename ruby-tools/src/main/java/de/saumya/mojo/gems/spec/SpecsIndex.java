@@ -0,0 +1,256 @@
+package de.saumya.mojo.gems.spec;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * in-memory index of a rubygems spec index like specs.4.8.gz,
+ * prerelease_specs.4.8.gz or latest_specs.4.8.gz. the entries are kept in
+ * columns sorted by name and version: the distinct gem names, the version
+ * of each entry and the platform of each entry as index into the distinct
+ * platforms. looking up the versions of a gem is a binary search over the
+ * names.
+ */
+public class SpecsIndex {
+
+    private final String[] names;
+
+    // entries of names[i] are starts[i] until starts[i + 1]
+    private final int[]    starts;
+
+    private final String[] versions;
+
+    private final short[]  platforms;
+
+    private final String[] platformNames;
+
+    /**
+     * reads the gzipped marshal data of a spec index file.
+     */
+    public static SpecsIndex read(final File specs) throws IOException {
+        final InputStream in = new BufferedInputStream(new GZIPInputStream(new FileInputStream(specs),
+                64 * 1024));
+        try {
+            return read(in);
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    /**
+     * reads the (not gzipped) marshal data of a spec index.
+     */
+    public static SpecsIndex read(final InputStream in) throws IOException {
+        final List<String> names = new ArrayList<String>();
+        final List<String> versions = new ArrayList<String>();
+        final List<String> platformNames = new ArrayList<String>();
+        final Map<String, Short> platformIndex = new HashMap<String, Short>();
+        final ShortList platforms = new ShortList();
+        new MarshalReader(in).readArray(new MarshalReader.ElementHandler() {
+
+            public void element(final Object element) throws IOException {
+                // [name, Gem::Version, platform]
+                final List<?> tuple = (List<?>) element;
+                if (tuple.size() != 3) {
+                    throw new IOException("unexpected spec tuple: " + tuple);
+                }
+                names.add((String) tuple.get(0));
+                versions.add(version(tuple.get(1)));
+                final String platform = String.valueOf(tuple.get(2));
+                Short index = platformIndex.get(platform);
+                if (index == null) {
+                    if (platformNames.size() > Short.MAX_VALUE) {
+                        throw new IOException("too many platforms");
+                    }
+                    index = (short) platformNames.size();
+                    platformNames.add(platform);
+                    platformIndex.put(platform, index);
+                }
+                platforms.add(index);
+            }
+        });
+        return new SpecsIndex(names, versions, platforms.toArray(),
+                platformNames.toArray(new String[platformNames.size()]));
+    }
+
+    private static String version(final Object version) throws IOException {
+        if (version instanceof MarshalReader.UserMarshal) {
+            final Object data = ((MarshalReader.UserMarshal) version).data;
+            if (data instanceof List<?> && ((List<?>) data).size() > 0) {
+                return String.valueOf(((List<?>) data).get(0));
+            }
+        }
+        else if (version instanceof String) {
+            return (String) version;
+        }
+        throw new IOException("unexpected version: " + version);
+    }
+
+    private SpecsIndex(final List<String> names, final List<String> versions,
+            final short[] platforms, final String[] platformNames) {
+        final int size = names.size();
+        final GemVersion[] keys = new GemVersion[size];
+        final Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = new GemVersion(versions.get(i));
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+
+            public int compare(final Integer left, final Integer right) {
+                int result = names.get(left).compareTo(names.get(right));
+                if (result == 0) {
+                    result = keys[left].compareTo(keys[right]);
+                }
+                if (result == 0) {
+                    result = platforms[left] - platforms[right];
+                }
+                return result;
+            }
+        });
+
+        final List<String> distinct = new ArrayList<String>();
+        final int[] starts = new int[size + 1];
+        this.versions = new String[size];
+        this.platforms = new short[size];
+        for (int i = 0; i < size; i++) {
+            final int entry = order[i];
+            final String name = names.get(entry);
+            if (distinct.isEmpty()
+                    || !distinct.get(distinct.size() - 1).equals(name)) {
+                starts[distinct.size()] = i;
+                distinct.add(name);
+            }
+            this.versions[i] = versions.get(entry);
+            this.platforms[i] = platforms[entry];
+        }
+        starts[distinct.size()] = size;
+        this.names = distinct.toArray(new String[distinct.size()]);
+        this.starts = new int[this.names.length + 1];
+        System.arraycopy(starts, 0, this.starts, 0, this.starts.length);
+        this.platformNames = platformNames;
+    }
+
+    /**
+     * @return the number of entries, i.e. name-version-platform tuples
+     */
+    public int size() {
+        return this.versions.length;
+    }
+
+    public List<String> names() {
+        return Collections.unmodifiableList(Arrays.asList(this.names));
+    }
+
+    /**
+     * @return the versions of all platforms from the lowest to the highest
+     */
+    public List<String> versions(final String name) {
+        return versions(name, null);
+    }
+
+    /**
+     * @return the versions of the given platform from the lowest to the
+     *         highest
+     */
+    public List<String> versions(final String name, final String platform) {
+        final int index = Arrays.binarySearch(this.names, name);
+        if (index < 0) {
+            return Collections.emptyList();
+        }
+        final List<String> result = new ArrayList<String>();
+        for (int i = this.starts[index]; i < this.starts[index + 1]; i++) {
+            if (platform == null
+                    || platform.equals(this.platformNames[this.platforms[i]])) {
+                if (result.isEmpty()
+                        || !result.get(result.size() - 1)
+                                .equals(this.versions[i])) {
+                    result.add(this.versions[i]);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the highest version of the gem or null if there is none
+     */
+    public String latestVersion(final String name) {
+        final int index = Arrays.binarySearch(this.names, name);
+        return index < 0 ? null : this.versions[this.starts[index + 1] - 1];
+    }
+
+    /**
+     * @param version
+     *            the version or null for any version
+     * @return true if the gem exists for the given platform
+     */
+    public boolean hasPlatform(final String name, final String version,
+            final String platform) {
+        final int index = Arrays.binarySearch(this.names, name);
+        if (index < 0) {
+            return false;
+        }
+        for (int i = this.starts[index]; i < this.starts[index + 1]; i++) {
+            if ((version == null || version.equals(this.versions[i]))
+                    && platform.equals(this.platformNames[this.platforms[i]])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param version
+     *            the version or null for any version
+     * @return true if the gem exists for any java platform
+     */
+    public boolean hasJavaPlatform(final String name, final String version) {
+        final int index = Arrays.binarySearch(this.names, name);
+        if (index < 0) {
+            return false;
+        }
+        for (int i = this.starts[index]; i < this.starts[index + 1]; i++) {
+            if ((version == null || version.equals(this.versions[i]))
+                    && this.platformNames[this.platforms[i]].contains("java")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * growing array of shorts which avoids boxing while reading.
+     */
+    private static class ShortList {
+        private short[] values = new short[1024];
+        private int     size   = 0;
+
+        void add(final short value) {
+            if (this.size == this.values.length) {
+                final short[] values = new short[this.size * 2];
+                System.arraycopy(this.values, 0, values, 0, this.size);
+                this.values = values;
+            }
+            this.values[this.size++] = value;
+        }
+
+        short[] toArray() {
+            final short[] values = new short[this.size];
+            System.arraycopy(this.values, 0, values, 0, this.size);
+            return values;
+        }
+    }
+}
@@ -1,6 +1,10 @@
 package de.saumya.mojo.gems.spec.yaml;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 
 import org.codehaus.plexus.component.annotations.Component;
 import org.yaml.snakeyaml.Dumper;
@@ -21,7 +25,16 @@ import de.saumya.mojo.gems.spec.GemSpecificationIO;
  */
 @Component(role = GemSpecificationIO.class, hint = "yaml")
 public class YamlGemSpecificationIO implements GemSpecificationIO {
-    protected Yaml _yaml;
+
+    // snakeyaml is not thread safe, so each thread gets its own instance
+    // which is set up once and reused for all the specs of that thread
+    private final ThreadLocal<Yaml> yaml = new ThreadLocal<Yaml>() {
+
+                                             @Override
+                                             protected Yaml initialValue() {
+                                                 return createYaml();
+                                             }
+                                         };
 
     public GemSpecification read(final String string) throws IOException {
         return readGemSpecfromYaml(string);
@@ -31,25 +44,36 @@ public class YamlGemSpecificationIO implements GemSpecificationIO {
         return writeGemSpectoYaml(gemspec);
     }
 
+    public GemSpecification read(final InputStream in) throws IOException {
+        return (GemSpecification) getYaml().load(in);
+    }
+
+    public void write(final GemSpecification gemspec, final OutputStream out)
+            throws IOException {
+        final Writer writer = new OutputStreamWriter(out, "UTF-8");
+        getYaml().dump(gemspec, writer);
+        writer.flush();
+    }
+
     // ==
 
     protected Yaml getYaml() {
-        if (this._yaml == null) {
-            final Constructor constructor = new MappingConstructor();
-            final Loader loader = new Loader(constructor);
+        return this.yaml.get();
+    }
 
-            final DumperOptions dumperOptions = new DumperOptions();
-            dumperOptions.setExplicitStart(true);
-            dumperOptions.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
-            dumperOptions.setDefaultScalarStyle(DumperOptions.ScalarStyle.PLAIN);
+    protected Yaml createYaml() {
+        final Constructor constructor = new MappingConstructor();
+        final Loader loader = new Loader(constructor);
 
-            final MappingRepresenter representer = new MappingRepresenter();
-            final Dumper dumper = new Dumper(representer, dumperOptions);
+        final DumperOptions dumperOptions = new DumperOptions();
+        dumperOptions.setExplicitStart(true);
+        dumperOptions.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
+        dumperOptions.setDefaultScalarStyle(DumperOptions.ScalarStyle.PLAIN);
 
-            this._yaml = new Yaml(loader, dumper);
-        }
+        final MappingRepresenter representer = new MappingRepresenter();
+        final Dumper dumper = new Dumper(representer, dumperOptions);
 
-        return this._yaml;
+        return new Yaml(loader, dumper);
     }
 
     protected GemSpecification readGemSpecfromYaml(final String gemspecString)
@@ -0,0 +1,89 @@
+/**
+ *
+ */
+package de.saumya.mojo.ruby;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * message digests and their hex form as used for checksums, cache keys and
+ * fingerprints.
+ */
+public class Digests {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    // do no initialize this
+    private Digests() {
+    }
+
+    public static MessageDigest digest(final String algorithm)
+            throws IOException {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        }
+        catch (final NoSuchAlgorithmException e) {
+            throw new IOException("can not create digest: " + e.getMessage());
+        }
+    }
+
+    public static MessageDigest sha1() throws IOException {
+        return digest("SHA-1");
+    }
+
+    /**
+     * @return the hex form of the SHA-1 of the content of the given file
+     */
+    public static String sha1(final File file) throws IOException {
+        return hex(sha1(), file);
+    }
+
+    /**
+     * @return the hex form of the SHA-256 of the content of the given file
+     */
+    public static String sha256(final File file) throws IOException {
+        return hex(digest("SHA-256"), file);
+    }
+
+    private static String hex(final MessageDigest digest, final File file)
+            throws IOException {
+        final InputStream in = new BufferedInputStream(new FileInputStream(file));
+        try {
+            final byte[] buffer = new byte[8192];
+            int n = in.read(buffer);
+            while (n != -1) {
+                digest.update(buffer, 0, n);
+                n = in.read(buffer);
+            }
+        }
+        finally {
+            in.close();
+        }
+        return hex(digest.digest());
+    }
+
+    /**
+     * @return the hex form of the SHA-1 of the UTF-8 bytes of the given value
+     */
+    public static String sha1(final CharSequence value) throws IOException {
+        return hex(sha1().digest(value.toString().getBytes("UTF-8")));
+    }
+
+    /**
+     * @return two lowercase hex digits for each byte
+     */
+    public static String hex(final byte[] bytes) {
+        final char[] hex = new char[2 * bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[2 * i] = HEX[(bytes[i] >> 4) & 0xf];
+            hex[2 * i + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String(hex);
+    }
+}
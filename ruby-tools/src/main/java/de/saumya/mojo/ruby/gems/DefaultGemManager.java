@@ -3,15 +3,16 @@
  */
 package de.saumya.mojo.ruby.gems;
 
-import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.MalformedURLException;
-import java.net.URL;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.repository.ArtifactRepository;
@@ -24,6 +25,7 @@ import org.apache.maven.artifact.repository.metadata.RepositoryMetadataResolutio
 import org.apache.maven.artifact.resolver.ArtifactResolutionRequest;
 import org.apache.maven.model.Dependency;
 import org.apache.maven.model.building.ModelBuildingRequest;
+import org.apache.maven.plugin.LegacySupport;
 import org.apache.maven.project.DefaultProjectBuildingRequest;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.project.ProjectBuilder;
@@ -34,9 +36,11 @@ import org.apache.maven.repository.legacy.metadata.DefaultMetadataResolutionRequ
 import org.apache.maven.repository.legacy.metadata.MetadataResolutionRequest;
 import org.codehaus.plexus.component.annotations.Component;
 import org.codehaus.plexus.component.annotations.Requirement;
-import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.logging.Logger;
 import org.sonatype.aether.RepositorySystemSession;
 
+import de.saumya.mojo.gems.spec.GemVersion;
+
 @Component(role = GemManager.class)
 public class DefaultGemManager implements GemManager {
 
@@ -51,6 +55,18 @@ public class DefaultGemManager implements GemManager {
     @Requirement
     private ProjectBuilder            builder;
 
+    @Requirement
+    private LegacySupport             legacySupport;
+
+    @Requirement
+    private Logger                    logger;
+
+    private boolean isOffline() {
+        return this.legacySupport != null
+                && this.legacySupport.getSession() != null
+                && this.legacySupport.getSession().isOffline();
+    }
+
     private Artifact setLatestVersionIfMissing(final Artifact artifact,
             final ArtifactRepository localRepository,
             final List<ArtifactRepository> remoteRepositories)
@@ -256,43 +272,45 @@ public class DefaultGemManager implements GemManager {
                 .getVersioning()
                 .getVersions();
         }
-        for(ArtifactRepository repo : remoteRepositories){
-            BufferedReader reader = null;
+        // fetch the directory listings of all repositories at once
+        final VersionListingCache cache = new VersionListingCache(new File(localRepository.getBasedir()),
+                isOffline());
+        final List<Future<List<String>>> listings = new ArrayList<Future<List<String>>>();
+        if (remoteRepositories.size() > 0) {
+            final ExecutorService executor = Executors.newFixedThreadPool(remoteRepositories.size());
             try {
-                URL url = new URL(repo.getUrl() + "/" + artifact.getGroupId().replace(".", "/") + "/" + artifact.getArtifactId() + "/");
-                reader = new BufferedReader(new InputStreamReader(url.openStream(),
-                        "UTF-8"));
-                String line = reader.readLine();
-                while (line != null) {
-                    //TODO maybe try to be more relax on how the version is embedded
-                    if (line.contains("<a href=")) {
-                        // first cut the end and then the beginning - allow greedy .*
-                        String version = line.replaceFirst("</a>.*", "")
-                            .replaceFirst(".*<a href=\".*\">", "");
-                        if(version.endsWith("/")){
-                            version = version.substring(0, version.length() - 1);
+                for (final ArtifactRepository repo : remoteRepositories) {
+                    listings.add(executor.submit(new Callable<List<String>>() {
+
+                        public List<String> call() throws IOException {
+                            return cache.versions(repo, artifact);
+                        }
+                    }));
+                }
+                for (final Future<List<String>> listing : listings) {
+                    try {
+                        for (final String version : listing.get()) {
                             if (!versions.contains(version)) {
                                 versions.add(version);
                             }
                         }
                     }
-                    line = reader.readLine();
+                    catch (final ExecutionException e) {
+                        this.logger.warn("error scraping versions from html index page: "
+                                + e.getCause().getMessage());
+                    }
+                    catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new GemException("interrupted while scraping versions of artifact: "
+                                + artifact, e);
+                    }
                 }
             }
-            catch (MalformedURLException e) {
-                // should never happen
-                throw new RuntimeException("error scraping versions from html page", e);
-            }
-            catch (IOException e) {
-                // TODO 
-//                System.err.println("error scraping versions from html index page: " + e.getMessage());
-//                e.printStackTrace();
-            }
             finally {
-                IOUtil.close(reader);
+                executor.shutdownNow();
             }
         }
-        Collections.sort(versions);
+        GemVersion.sort(versions);
         return versions;
     }
 }
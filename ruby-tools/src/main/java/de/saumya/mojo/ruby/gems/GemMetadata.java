@@ -0,0 +1,139 @@
+/**
+ *
+ */
+package de.saumya.mojo.ruby.gems;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * the few fields of the YAML gem specification (metadata.gz) which are
+ * needed to install a gem. it does not need a full YAML parser since
+ * rubygems writes these fields always the same way. any value which does
+ * not look as expected leaves the metadata invalid.
+ */
+class GemMetadata {
+
+    final String       yaml;
+
+    String             name;
+
+    String             version;
+
+    String             platform = "ruby";
+
+    String             bindir   = "bin";
+
+    final List<String> executables = new ArrayList<String>();
+
+    final List<String> extensions  = new ArrayList<String>();
+
+    private boolean    valid       = true;
+
+    GemMetadata(final String yaml) {
+        this.yaml = yaml;
+        parse();
+    }
+
+    boolean isValid() {
+        return this.valid && this.name != null && this.version != null;
+    }
+
+    String fullName() {
+        if ("ruby".equals(this.platform)) {
+            return this.name + "-" + this.version;
+        }
+        else {
+            return this.name + "-" + this.version + "-" + this.platform;
+        }
+    }
+
+    private void parse() {
+        String key = null;
+        for (final String line : this.yaml.split("\r?\n")) {
+            if (line.startsWith("---") || line.trim().length() == 0) {
+                continue;
+            }
+            final char first = line.charAt(0);
+            if (first != ' ' && first != '\t' && first != '-') {
+                final int colon = line.indexOf(':');
+                if (colon < 0) {
+                    key = null;
+                    continue;
+                }
+                key = line.substring(0, colon).trim();
+                final String value = line.substring(colon + 1).trim();
+                if (key.equals("name")) {
+                    this.name = unquote(value);
+                }
+                else if (key.equals("version")) {
+                    if (!value.startsWith("!")) {
+                        this.version = unquote(value);
+                    }
+                }
+                else if (key.equals("platform")) {
+                    if (value.startsWith("!")) {
+                        // Gem::Platform objects are not supported
+                        this.valid = false;
+                    }
+                    this.platform = unquote(value);
+                }
+                else if (key.equals("bindir")) {
+                    this.bindir = unquote(value);
+                }
+                else if (key.equals("executables")) {
+                    list(value, this.executables);
+                }
+                else if (key.equals("extensions")) {
+                    list(value, this.extensions);
+                }
+            }
+            else if (key != null) {
+                final String value = line.trim();
+                if (key.equals("version") && value.startsWith("version:")) {
+                    this.version = unquote(value.substring(8).trim());
+                }
+                else if (value.startsWith("- ")
+                        && (key.equals("executables") || key.equals("extensions"))) {
+                    (key.equals("executables")
+                            ? this.executables
+                            : this.extensions).add(unquote(value.substring(2)
+                            .trim()));
+                }
+            }
+        }
+    }
+
+    private void list(final String value, final List<String> list) {
+        if (value.startsWith("[") && value.endsWith("]")) {
+            final String content = value.substring(1, value.length() - 1)
+                    .trim();
+            if (content.length() > 0) {
+                for (final String item : content.split(",")) {
+                    list.add(unquote(item.trim()));
+                }
+            }
+        }
+        else if (value.length() > 0) {
+            // something unexpected like an anchor
+            this.valid = false;
+        }
+    }
+
+    private String unquote(final String value) {
+        if (value.length() >= 2
+                && ((value.startsWith("\"") && value.endsWith("\"")) || (value.startsWith("'") && value.endsWith("'")))) {
+            final String content = value.substring(1, value.length() - 1);
+            if (content.indexOf('\\') >= 0) {
+                // escapes are not supported
+                this.valid = false;
+            }
+            return content;
+        }
+        if (value.startsWith("!") || value.startsWith("&")
+                || value.startsWith("*")) {
+            this.valid = false;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,174 @@
+/**
+ *
+ */
+package de.saumya.mojo.ruby.gems;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.nio.channels.FileLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.codehaus.plexus.util.FileUtils;
+
+import de.saumya.mojo.ruby.Digests;
+
+/**
+ * store of unpacked gems shared by all projects, i.e. all the modules of a
+ * reactor build. each gem gets unpacked once into a directory named after
+ * the checksum of the gem file and gets linked from there into the gems
+ * directory of a GEM_HOME. populating the store is guarded by a file lock
+ * (other processes) and a lock per checksum (other threads). writing into a
+ * linked file writes into the store, so the linked gems must be treated as
+ * read-only.
+ */
+class GemStore {
+
+    interface Unpacker {
+
+        /**
+         * @return false if the gem can not be unpacked
+         */
+        boolean unpack(File target) throws IOException;
+    }
+
+    private static final ConcurrentMap<String, Object> LOCKS = new ConcurrentHashMap<String, Object>();
+
+    private final File                                 directory;
+
+    GemStore(final File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @return the directory with the unpacked gem or null if the unpacker
+     *         could not unpack the gem
+     */
+    File get(final File gem, final Unpacker unpacker) throws IOException {
+        final String checksum = checksum(gem);
+        final File target = new File(this.directory, checksum);
+        if (target.isDirectory()) {
+            return target;
+        }
+        this.directory.mkdirs();
+        final Object lock = lock(target.getAbsolutePath());
+        synchronized (lock) {
+            final RandomAccessFile file = new RandomAccessFile(new File(this.directory,
+                    checksum + ".lock"),
+                    "rw");
+            try {
+                final FileLock fileLock = file.getChannel().lock();
+                try {
+                    // someone else might have been faster
+                    if (target.isDirectory()) {
+                        return target;
+                    }
+                    final File tmp = new File(this.directory, "." + checksum
+                            + ".tmp");
+                    FileUtils.deleteDirectory(tmp);
+                    tmp.mkdirs();
+                    try {
+                        if (!unpacker.unpack(tmp)) {
+                            return null;
+                        }
+                        if (!tmp.renameTo(target)) {
+                            throw new IOException("could not move " + tmp
+                                    + " to " + target);
+                        }
+                    }
+                    finally {
+                        FileUtils.deleteDirectory(tmp);
+                    }
+                    return target;
+                }
+                finally {
+                    fileLock.release();
+                }
+            }
+            finally {
+                file.close();
+            }
+        }
+    }
+
+    /**
+     * recreates the directory tree of source in target where all files are
+     * hard links to the files of source. it falls back to symbolic links and
+     * copies where hard links are not possible, i.e. across filesystems.
+     */
+    static void link(final File source, final File target) throws IOException {
+        target.mkdirs();
+        final File[] files = source.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (final File file : files) {
+            final File link = new File(target, file.getName());
+            if (file.isDirectory()) {
+                link(file, link);
+            }
+            else if (!createLink("createLink", link, file)
+                    && !createLink("createSymbolicLink", link, file)) {
+                FileUtils.copyFile(file, link);
+                if (isExecutable(file)) {
+                    JavaGemInstaller.setExecutable(link);
+                }
+            }
+        }
+    }
+
+    private static Object lock(final String key) {
+        final Object lock = new Object();
+        final Object existing = LOCKS.putIfAbsent(key, lock);
+        return existing == null ? lock : existing;
+    }
+
+    /**
+     * java 7 API: Files.createLink or Files.createSymbolicLink
+     */
+    private static boolean createLink(final String method, final File link,
+            final File existing) {
+        try {
+            final Method toPath = File.class.getMethod("toPath");
+            final Class<?> path = toPath.getReturnType();
+            final Class<?> files = Class.forName("java.nio.file.Files");
+            if (method.equals("createLink")) {
+                files.getMethod(method, path, path).invoke(null,
+                                                           toPath.invoke(link),
+                                                           toPath.invoke(existing));
+            }
+            else {
+                final Class<?> attribute = Class.forName("java.nio.file.attribute.FileAttribute");
+                files.getMethod(method,
+                                path,
+                                path,
+                                Array.newInstance(attribute, 0).getClass())
+                        .invoke(null,
+                                toPath.invoke(link),
+                                toPath.invoke(existing.getAbsoluteFile()),
+                                Array.newInstance(attribute, 0));
+            }
+            return true;
+        }
+        catch (final Exception e) {
+            return false;
+        }
+    }
+
+    static boolean isExecutable(final File file) {
+        try {
+            // java 6 API
+            return (Boolean) File.class.getMethod("canExecute").invoke(file);
+        }
+        catch (final Exception e) {
+            return false;
+        }
+    }
+
+    static String checksum(final File gem) throws IOException {
+        return Digests.sha1(gem);
+    }
+}
@@ -36,6 +36,12 @@ public class GemsConfig {
 
     private boolean             skipJRubyOpenSSL = false;
 
+    private boolean             javaInstall      = true;
+
+    private int                 resolveThreads   = 4;
+
+    private File                storeDirectory;
+
     public void setSkipJRubyOpenSSL(final boolean skip) {
         this.skipJRubyOpenSSL = skip;
     }
@@ -44,6 +50,43 @@ public class GemsConfig {
         return this.skipJRubyOpenSSL;
     }
 
+    /**
+     * install plain gems by unpacking them in java instead of running
+     * 'gem install'.
+     */
+    public void setJavaInstall(final boolean javaInstall) {
+        this.javaInstall = javaInstall;
+    }
+
+    public boolean isJavaInstall() {
+        return this.javaInstall;
+    }
+
+    /**
+     * number of artifacts which get resolved in parallel.
+     */
+    public void setResolveThreads(final int resolveThreads) {
+        this.resolveThreads = Math.max(1, resolveThreads);
+    }
+
+    public int getResolveThreads() {
+        return this.resolveThreads;
+    }
+
+    /**
+     * directory of the store with unpacked gems which gets shared between
+     * projects. the gems get hard linked from there into GEM_HOME, so
+     * modifying an installed gem in place modifies it for all projects. null
+     * disables the store.
+     */
+    public void setStoreDirectory(final File storeDirectory) {
+        this.storeDirectory = storeDirectory;
+    }
+
+    public File getStoreDirectory() {
+        return this.storeDirectory;
+    }
+
     public void setAddRI(final boolean addRI) {
         this.addRI = addRI;
     }
@@ -205,6 +248,9 @@ public class GemsConfig {
         clone.systemInstall = this.systemInstall;
         clone.verbose = this.verbose;
         clone.skipJRubyOpenSSL = this.skipJRubyOpenSSL;
+        clone.javaInstall = this.javaInstall;
+        clone.resolveThreads = this.resolveThreads;
+        clone.storeDirectory = this.storeDirectory;
         clone.binDirectory = this.binDirectory;
 
         return clone;
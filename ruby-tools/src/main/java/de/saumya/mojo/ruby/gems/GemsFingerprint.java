@@ -0,0 +1,126 @@
+/**
+ *
+ */
+package de.saumya.mojo.ruby.gems;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.maven.artifact.Artifact;
+import org.codehaus.plexus.util.FileUtils;
+
+import de.saumya.mojo.ruby.Digests;
+
+/**
+ * fingerprint of a set of gem artifacts together with the state of the gem
+ * directories they get installed into. when the fingerprint of the last
+ * successful installation matches the current one there is nothing to
+ * install. the fingerprint is kept inside GEM_HOME.
+ */
+public class GemsFingerprint {
+
+    private static final String FILE = ".gems.fingerprint";
+
+    private final GemsConfig    config;
+
+    private final List<String>  artifacts = new ArrayList<String>();
+
+    private final List<File>    gemHomes  = new ArrayList<File>();
+
+    private final File          file;
+
+    public GemsFingerprint(final GemsConfig config) {
+        this.config = config;
+        this.file = config.getGemHome() == null
+                ? null
+                : new File(config.getGemHome(), FILE);
+        addGemHome(config.getGemHome());
+    }
+
+    /**
+     * adds the gem artifacts with their coordinates, size and modification
+     * time. artifacts without file make the fingerprint unusable.
+     */
+    public GemsFingerprint addArtifacts(final Collection<Artifact> artifacts) {
+        if (artifacts != null) {
+            for (final Artifact artifact : artifacts) {
+                if (artifact.getType().contains("gem")) {
+                    final File gem = artifact.getFile();
+                    this.artifacts.add(artifact.getId()
+                            + ":"
+                            + (gem == null ? "-" : gem.getAbsolutePath() + ":"
+                                    + gem.length() + ":" + gem.lastModified()));
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * adds another gem home which gets installed into, i.e. the one for the
+     * gems of a plugin.
+     */
+    public GemsFingerprint addGemHome(final File gemHome) {
+        if (gemHome != null) {
+            this.gemHomes.add(gemHome);
+        }
+        return this;
+    }
+
+    public boolean isUpToDate() {
+        if (this.file == null || !this.file.exists()) {
+            return false;
+        }
+        try {
+            final String current = compute();
+            return current != null
+                    && current.equals(FileUtils.fileRead(this.file, "UTF-8")
+                            .trim());
+        }
+        catch (final IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * stores the fingerprint after a successful installation.
+     */
+    public void store() throws IOException {
+        final String current = compute();
+        if (this.file != null && current != null) {
+            this.file.getParentFile().mkdirs();
+            FileUtils.fileWrite(this.file.getAbsolutePath(), "UTF-8", current);
+        }
+    }
+
+    private String compute() throws IOException {
+        final List<String> lines = new ArrayList<String>(this.artifacts);
+        Collections.sort(lines);
+        for (final String line : lines) {
+            if (line.endsWith(":-")) {
+                // unresolved artifact
+                return null;
+            }
+        }
+        lines.add("rdoc:" + this.config.isAddRdoc());
+        lines.add("ri:" + this.config.isAddRI());
+        lines.add("openssl:" + !this.config.skipJRubyOpenSSL());
+        lines.add("bin:" + this.config.getBinDirectory());
+        for (final File home : this.gemHomes) {
+            // any change of installed gems changes the gems directory
+            lines.add("home:" + home.getAbsolutePath() + ":"
+                    + new File(home, "gems").lastModified());
+        }
+        final MessageDigest digest = Digests.sha1();
+        for (final String line : lines) {
+            digest.update(line.getBytes("UTF-8"));
+            digest.update((byte) '\n');
+        }
+        return Digests.hex(digest.digest());
+    }
+}
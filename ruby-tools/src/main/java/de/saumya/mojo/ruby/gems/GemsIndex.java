@@ -0,0 +1,145 @@
+/**
+ *
+ */
+package de.saumya.mojo.ruby.gems;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * index of the installed gems of a gems directory, i.e. the names of its
+ * subdirectories like name-version or name-version-platform. the index
+ * lives next to the gems directory and remembers the modification time of
+ * the directory. as long as that time did not change the index can be used
+ * as is, otherwise it gets rebuilt from a single directory listing.
+ */
+class GemsIndex {
+
+    // modification times closer than that to the time the index got written
+    // can not be trusted since the filesystem might have a coarse resolution
+    private static final long RESOLUTION = 2000;
+
+    private final File        directory;
+
+    private final File        file;
+
+    private final Set<String> gems;
+
+    GemsIndex(final File directory) {
+        this.directory = directory;
+        this.file = new File(directory.getParentFile(), directory.getName()
+                + ".index");
+        Set<String> gems = read();
+        if (gems == null) {
+            gems = list();
+            write(gems);
+        }
+        this.gems = gems;
+    }
+
+    boolean contains(final String fullName) {
+        return this.gems.contains(fullName);
+    }
+
+    /**
+     * adds a freshly installed gem to the index.
+     */
+    void add(final String fullName) {
+        this.gems.add(fullName);
+        write(this.gems);
+    }
+
+    /**
+     * @return the gems of the index file or null if the file is missing or
+     *         out of date
+     */
+    private Set<String> read() {
+        if (!this.file.exists()) {
+            return null;
+        }
+        try {
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(this.file),
+                    "UTF-8"));
+            try {
+                final String header = reader.readLine();
+                if (header == null) {
+                    return null;
+                }
+                final String[] times = header.split(" ");
+                final long modified = Long.parseLong(times[0]);
+                final long written = Long.parseLong(times[1]);
+                if (modified != this.directory.lastModified()
+                        || written - modified < RESOLUTION) {
+                    return null;
+                }
+                final Set<String> gems = new HashSet<String>();
+                String line = reader.readLine();
+                while (line != null) {
+                    if (line.length() > 0) {
+                        gems.add(line);
+                    }
+                    line = reader.readLine();
+                }
+                return gems;
+            }
+            finally {
+                reader.close();
+            }
+        }
+        catch (final IOException e) {
+            return null;
+        }
+        catch (final RuntimeException e) {
+            // broken header
+            return null;
+        }
+    }
+
+    private Set<String> list() {
+        final String[] names = this.directory.list();
+        final Set<String> gems = new HashSet<String>();
+        if (names != null) {
+            gems.addAll(Arrays.asList(names));
+        }
+        return gems;
+    }
+
+    private void write(final Set<String> gems) {
+        if (!this.directory.exists()) {
+            return;
+        }
+        try {
+            final File tmp = new File(this.file.getPath() + ".tmp");
+            final Writer writer = new OutputStreamWriter(new FileOutputStream(tmp),
+                    "UTF-8");
+            try {
+                writer.write(this.directory.lastModified() + " "
+                        + System.currentTimeMillis() + "\n");
+                for (final String gem : new TreeSet<String>(gems)) {
+                    writer.write(gem);
+                    writer.write('\n');
+                }
+            }
+            finally {
+                writer.close();
+            }
+            this.file.delete();
+            if (!tmp.renameTo(this.file)) {
+                tmp.delete();
+            }
+        }
+        catch (final IOException e) {
+            // the index is only an optimization
+        }
+    }
+}
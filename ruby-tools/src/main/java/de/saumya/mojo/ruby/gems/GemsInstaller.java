@@ -5,9 +5,17 @@ package de.saumya.mojo.ruby.gems;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.repository.ArtifactRepository;
@@ -16,6 +24,7 @@ import org.apache.maven.project.MavenProject;
 import org.sonatype.aether.RepositorySystemSession;
 
 import de.saumya.mojo.ruby.script.Script;
+import de.saumya.mojo.ruby.script.ScriptBatch;
 import de.saumya.mojo.ruby.script.ScriptException;
 import de.saumya.mojo.ruby.script.ScriptFactory;
 
@@ -29,6 +38,8 @@ public class GemsInstaller {
 
     private final GemManager    manager;
 
+    private final Map<File, GemsIndex> indexes = new HashMap<File, GemsIndex>();
+
     public GemsInstaller(final GemsConfig config, final ScriptFactory factory,
             final GemManager manager) {
         this.config = config;
@@ -49,6 +60,16 @@ public class GemsInstaller {
         installGems(pom, localRepository);
     }
 
+    /**
+     * adds the gem install script to the given batch instead of executing
+     * it right away.
+     */
+    public void installPom(final MavenProject pom,
+            final ArtifactRepository localRepository, final ScriptBatch batch)
+            throws IOException, ScriptException, GemException {
+        installGems(pom, null, localRepository, batch);
+    }
+
     public MavenProject installGem(final String name, final String version,
             final RepositorySystemSession repositorySystemSession,
             final ArtifactRepository localRepository) throws GemException,
@@ -87,30 +108,36 @@ public class GemsInstaller {
     public void installGems(final MavenProject pom, final Collection<Artifact> artifacts,
                 final ArtifactRepository localRepository) throws IOException,
                 ScriptException, GemException {
+        installGems(pom, artifacts, localRepository, null);
+    }
+
+    /**
+     * with a batch the gem install script gets added to the batch instead of
+     * executing it right away.
+     */
+    public void installGems(final MavenProject pom, final Collection<Artifact> artifacts,
+                final ArtifactRepository localRepository, final ScriptBatch batch)
+                throws IOException, ScriptException, GemException {
+        // gems might got installed since the last call
+        this.indexes.clear();
         // start with empty script which will be create when first
         // un-installed gem is found
         Script script = null;
         if (pom != null) {
+            final List<Artifact> all = new ArrayList<Artifact>(pom.getArtifacts());
+            if (artifacts != null) {
+                all.addAll(artifacts);
+            }
+            resolve(all, localRepository, pom.getRemoteArtifactRepositories());
+
             boolean hasAlreadyOpenSSL = false;
             for (final Artifact artifact : pom.getArtifacts()) {
-                if (!artifact.getFile().exists()) {
-                    this.manager.resolve(artifact,
-                                         localRepository,
-                                         pom.getRemoteArtifactRepositories());
-
-                }
                 script = maybeAddArtifact(script, artifact);
                 hasAlreadyOpenSSL = hasAlreadyOpenSSL
                         || artifact.getArtifactId().equals(JRUBY_OPENSSL);
             }
             if (artifacts != null) {
                 for (final Artifact artifact : artifacts) {
-                    if (!artifact.getFile().exists()) {
-                        this.manager.resolve(artifact,
-                                             localRepository,
-                                             pom.getRemoteArtifactRepositories());
-
-                    }
                     script = maybeAddArtifact(script, artifact);
                     hasAlreadyOpenSSL = hasAlreadyOpenSSL
                             || artifact.getArtifactId().equals(JRUBY_OPENSSL);
@@ -143,7 +170,77 @@ public class GemsInstaller {
             if(!this.config.getBinDirectory().exists()){
                 this.config.getBinDirectory().mkdirs();
             }
-            script.execute();
+            if (batch == null) {
+                script.execute();
+            }
+            else {
+                batch.add(script);
+            }
+        }
+    }
+
+    /**
+     * resolves all the missing artifacts in parallel and reports all the
+     * artifacts which could not be resolved.
+     */
+    private void resolve(final List<Artifact> artifacts,
+            final ArtifactRepository localRepository,
+            final List<ArtifactRepository> remoteRepositories)
+            throws GemException {
+        final List<Artifact> missing = new ArrayList<Artifact>();
+        for (final Artifact artifact : artifacts) {
+            if (artifact.getFile() == null || !artifact.getFile().exists()) {
+                missing.add(artifact);
+            }
+        }
+        if (missing.size() == 0) {
+            return;
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(this.config.getResolveThreads(),
+                                                                               missing.size()));
+        try {
+            final List<Future<Object>> results = new ArrayList<Future<Object>>();
+            for (final Artifact artifact : missing) {
+                results.add(executor.submit(new Callable<Object>() {
+                    public Object call() throws GemException {
+                        GemsInstaller.this.manager.resolve(artifact,
+                                                           localRepository,
+                                                           remoteRepositories);
+                        return null;
+                    }
+                }));
+            }
+            final StringBuilder errors = new StringBuilder();
+            Exception cause = null;
+            for (int i = 0; i < missing.size(); i++) {
+                try {
+                    results.get(i).get();
+                }
+                catch (final ExecutionException e) {
+                    errors.append("\n\t")
+                            .append(missing.get(i))
+                            .append(": ")
+                            .append(e.getCause().getMessage());
+                    if (cause == null) {
+                        cause = e.getCause() instanceof Exception
+                                ? (Exception) e.getCause()
+                                : e;
+                    }
+                }
+                catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new GemException("interrupted while resolving gems",
+                            e);
+                }
+            }
+            if (cause != null) {
+                throw new GemException("could not resolve artifacts:" + errors,
+                        cause);
+            }
+        }
+        finally {
+            executor.shutdownNow();
         }
     }
 
@@ -153,8 +250,8 @@ public class GemsInstaller {
         String javaBasename = basename + "-java";
 
         for (File dir : this.config.getGemsDirectory()) {
-            if (new File(dir, basename).exists()
-                    || new File(dir, javaBasename).exists()) {
+            final GemsIndex index = index(dir);
+            if (index.contains(basename) || index.contains(javaBasename)) {
                 return true;
             }
         }
@@ -164,7 +261,7 @@ public class GemsInstaller {
     private Script maybeAddArtifact(Script script, final Artifact artifact)
             throws IOException, GemException {
         if (artifact.getType().contains("gem")) {
-            if (!exists(artifact)) {
+            if (!exists(artifact) && !installWithJava(artifact)) {
                 if (script == null) {
                     script = this.factory.newScriptFromResource(GEM_RUBY_COMMAND)
                             .addArg("install")
@@ -182,6 +279,27 @@ public class GemsInstaller {
         return script;
     }
 
+    private boolean installWithJava(final Artifact artifact)
+            throws IOException {
+        if (this.config.isJavaInstall()) {
+            final String fullName = new JavaGemInstaller(this.config).install(artifact.getFile());
+            if (fullName != null) {
+                index(new File(this.config.getGemHome(), "gems")).add(fullName);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private GemsIndex index(final File gemsDirectory) {
+        GemsIndex index = this.indexes.get(gemsDirectory);
+        if (index == null) {
+            index = new GemsIndex(gemsDirectory);
+            this.indexes.put(gemsDirectory, index);
+        }
+        return index;
+    }
+
     private String booleanArg(final boolean flag, final String name) {
         return "--" + (flag ? "" : "no-") + name;
     }
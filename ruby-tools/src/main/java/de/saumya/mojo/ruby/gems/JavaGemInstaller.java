@@ -0,0 +1,241 @@
+/**
+ *
+ */
+package de.saumya.mojo.ruby.gems;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.zip.GZIPInputStream;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * installs a gem without ruby: unpacks the data of the gem into
+ * GEM_HOME/gems, writes the specification into GEM_HOME/specifications,
+ * copies the gem into GEM_HOME/cache and creates the bin stubs. gems which
+ * need more than that (native extensions, documentation, old gem formats)
+ * are left for 'gem install'.
+ */
+class JavaGemInstaller {
+
+    private final GemsConfig config;
+
+    JavaGemInstaller(final GemsConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * @return the full name of the installed gem or null if the gem needs to
+     *         be installed by rubygems
+     */
+    String install(final File gem) throws IOException {
+        final File gemHome = this.config.getGemHome();
+        if (gemHome == null || this.config.isAddRdoc()
+                || this.config.isAddRI() || this.config.isUserInstall()
+                || this.config.isSystemInstall()) {
+            return null;
+        }
+
+        final GemMetadata metadata = metadata(gem);
+        if (metadata == null || !metadata.isValid()
+                || metadata.extensions.size() > 0) {
+            return null;
+        }
+
+        final File gems = new File(gemHome, "gems");
+        final File target = new File(gems, metadata.fullName());
+        final File tmp = new File(gems, "." + metadata.fullName() + ".tmp");
+        FileUtils.deleteDirectory(tmp);
+        tmp.mkdirs();
+        try {
+            if (this.config.getStoreDirectory() != null) {
+                // unpack once into the shared store and link from there
+                final GemStore store = new GemStore(this.config.getStoreDirectory());
+                final File stored = store.get(gem, new GemStore.Unpacker() {
+
+                    public boolean unpack(final File directory) throws IOException {
+                        return unpackData(gem, directory);
+                    }
+                });
+                if (stored == null) {
+                    return null;
+                }
+                GemStore.link(stored, tmp);
+            }
+            else if (!unpackData(gem, tmp)) {
+                return null;
+            }
+            FileUtils.deleteDirectory(target);
+            if (!tmp.renameTo(target)) {
+                throw new IOException("could not move " + tmp + " to " + target);
+            }
+        }
+        finally {
+            FileUtils.deleteDirectory(tmp);
+        }
+
+        writeSpecification(new File(gemHome, "specifications"), metadata);
+
+        final File cache = new File(gemHome, "cache");
+        cache.mkdirs();
+        FileUtils.copyFile(gem, new File(cache, metadata.fullName() + ".gem"));
+
+        final File bin = this.config.getBinDirectory();
+        if (metadata.executables.size() > 0 && bin != null) {
+            bin.mkdirs();
+            for (final String executable : metadata.executables) {
+                writeBinStub(new File(bin, executable), metadata, executable);
+            }
+        }
+        return metadata.fullName();
+    }
+
+    /**
+     * @return the metadata of the gem or null if the gem has an old format
+     */
+    private GemMetadata metadata(final File gem) throws IOException {
+        final InputStream in = new BufferedInputStream(new FileInputStream(gem));
+        try {
+            final TarReader tar = new TarReader(in);
+            TarReader.Entry entry = tar.next();
+            while (entry != null) {
+                if (entry.name.equals("metadata.gz")) {
+                    final ByteArrayOutputStream yaml = new ByteArrayOutputStream();
+                    IOUtil.copy(new GZIPInputStream(tar.stream()), yaml);
+                    return new GemMetadata(yaml.toString("UTF-8"));
+                }
+                entry = tar.next();
+            }
+            return null;
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    /**
+     * @return false if the data contains entries which can not be unpacked,
+     *         i.e. links
+     */
+    private boolean unpackData(final File gem, final File target)
+            throws IOException {
+        final String base = target.getCanonicalPath() + File.separator;
+        final InputStream in = new BufferedInputStream(new FileInputStream(gem));
+        try {
+            final TarReader tar = new TarReader(in);
+            TarReader.Entry entry = tar.next();
+            while (entry != null) {
+                if (entry.name.equals("data.tar.gz")) {
+                    final TarReader data = new TarReader(new BufferedInputStream(new GZIPInputStream(tar.stream())));
+                    TarReader.Entry file = data.next();
+                    while (file != null) {
+                        final File path = new File(target, file.name);
+                        if (!path.getCanonicalPath().startsWith(base)) {
+                            throw new IOException("gem " + gem
+                                    + " contains a file outside of its directory: "
+                                    + file.name);
+                        }
+                        if (file.isDirectory()) {
+                            path.mkdirs();
+                        }
+                        else if (file.isFile()) {
+                            path.getParentFile().mkdirs();
+                            final OutputStream out = new BufferedOutputStream(new FileOutputStream(path));
+                            try {
+                                IOUtil.copy(data.stream(), out);
+                            }
+                            finally {
+                                out.close();
+                            }
+                            if ((file.mode & 0111) != 0) {
+                                setExecutable(path);
+                            }
+                        }
+                        else {
+                            return false;
+                        }
+                        file = data.next();
+                    }
+                    return true;
+                }
+                entry = tar.next();
+            }
+            return false;
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    private void writeSpecification(final File specifications,
+            final GemMetadata metadata) throws IOException {
+        specifications.mkdirs();
+        final Writer writer = new OutputStreamWriter(new FileOutputStream(new File(specifications,
+                metadata.fullName() + ".gemspec")),
+                "UTF-8");
+        try {
+            writer.write("# -*- encoding: utf-8 -*-\n");
+            writer.write("# generated by the jruby-maven-plugins\n");
+            writer.write("require 'yaml'\n");
+            writer.write("Gem::Specification.from_yaml(<<'GEMSPEC_YAML')\n");
+            writer.write(metadata.yaml);
+            if (!metadata.yaml.endsWith("\n")) {
+                writer.write("\n");
+            }
+            writer.write("GEMSPEC_YAML\n");
+        }
+        finally {
+            writer.close();
+        }
+    }
+
+    private void writeBinStub(final File stub, final GemMetadata metadata,
+            final String executable) throws IOException {
+        final Writer writer = new OutputStreamWriter(new FileOutputStream(stub),
+                "UTF-8");
+        try {
+            writer.write("#!/usr/bin/env jruby\n");
+            writer.write("#\n");
+            writer.write("# This file was generated by the jruby-maven-plugins.\n");
+            writer.write("#\n");
+            writer.write("# The application '" + metadata.name
+                    + "' is installed as part of a gem, and\n");
+            writer.write("# this file is here to facilitate running it.\n");
+            writer.write("#\n\n");
+            writer.write("require 'rubygems'\n\n");
+            writer.write("version = \">= 0\"\n\n");
+            writer.write("if ARGV.first =~ /^_(.*)_$/ and Gem::Version.correct? $1 then\n");
+            writer.write("  version = $1\n");
+            writer.write("  ARGV.shift\n");
+            writer.write("end\n\n");
+            writer.write("gem '" + metadata.name + "', version\n");
+            writer.write("load Gem.bin_path('" + metadata.name + "', '"
+                    + executable + "', version)\n");
+        }
+        finally {
+            writer.close();
+        }
+        setExecutable(stub);
+    }
+
+    static void setExecutable(final File file) {
+        try {
+            // java 6 API
+            File.class.getMethod("setExecutable", boolean.class, boolean.class)
+                    .invoke(file, true, false);
+        }
+        catch (final Exception e) {
+            // best effort
+        }
+    }
+}
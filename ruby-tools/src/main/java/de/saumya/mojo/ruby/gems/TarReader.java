@@ -0,0 +1,234 @@
+/**
+ *
+ */
+package de.saumya.mojo.ruby.gems;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * minimal streaming reader for the tar files inside a gem. it understands
+ * plain ustar headers with name prefix, GNU long names and the path of pax
+ * headers - which covers everything rubygems writes.
+ */
+class TarReader {
+
+    static final char         FILE      = '0';
+    static final char         DIRECTORY = '5';
+
+    private static final int  BLOCK     = 512;
+
+    private final InputStream in;
+
+    private final byte[]      header    = new byte[BLOCK];
+
+    private long              remaining = 0;
+
+    private long              padding   = 0;
+
+    static class Entry {
+        final String name;
+        final char   type;
+        final int    mode;
+        final long   size;
+
+        Entry(final String name, final char type, final int mode,
+                final long size) {
+            this.name = name;
+            this.type = type;
+            this.mode = mode;
+            this.size = size;
+        }
+
+        boolean isFile() {
+            return this.type == FILE || this.type == 0;
+        }
+
+        boolean isDirectory() {
+            return this.type == DIRECTORY || this.name.endsWith("/");
+        }
+    }
+
+    TarReader(final InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * @return the next entry or null at the end of the archive
+     */
+    Entry next() throws IOException {
+        skip(this.remaining + this.padding);
+        String longName = null;
+        while (true) {
+            if (!readHeader()) {
+                return null;
+            }
+            final String name = string(0, 100);
+            final int mode = (int) octal(100, 8);
+            final long size = octal(124, 12);
+            final char type = (char) this.header[156];
+            this.remaining = size;
+            this.padding = (BLOCK - size % BLOCK) % BLOCK;
+
+            if (type == 'L') {
+                // GNU long name
+                longName = trimNull(new String(content(), "UTF-8"));
+            }
+            else if (type == 'x') {
+                // pax header, only the path is of interest
+                final String path = paxPath(new String(content(), "UTF-8"));
+                if (path != null) {
+                    longName = path;
+                }
+            }
+            else if (type == 'g') {
+                content();
+            }
+            else {
+                String fullName = name;
+                if (longName != null) {
+                    fullName = longName;
+                }
+                else if ("ustar".equals(string(257, 5))) {
+                    final String prefix = string(345, 155);
+                    if (prefix.length() > 0) {
+                        fullName = prefix + "/" + name;
+                    }
+                }
+                return new Entry(fullName, type, mode, size);
+            }
+        }
+    }
+
+    /**
+     * stream of the content of the current entry.
+     */
+    InputStream stream() {
+        return new InputStream() {
+
+            @Override
+            public int read() throws IOException {
+                final byte[] b = new byte[1];
+                return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+            }
+
+            @Override
+            public int read(final byte[] b, final int off, final int len)
+                    throws IOException {
+                if (TarReader.this.remaining <= 0) {
+                    return -1;
+                }
+                final int n = TarReader.this.in.read(b,
+                                                     off,
+                                                     (int) Math.min(len,
+                                                                    TarReader.this.remaining));
+                if (n == -1) {
+                    throw new EOFException("truncated tar entry");
+                }
+                TarReader.this.remaining -= n;
+                return n;
+            }
+
+            @Override
+            public void close() {
+                // the tar stream stays open
+            }
+        };
+    }
+
+    private byte[] content() throws IOException {
+        final byte[] content = new byte[(int) this.remaining];
+        readFully(content);
+        this.remaining = 0;
+        skip(this.padding);
+        this.padding = 0;
+        return content;
+    }
+
+    private boolean readHeader() throws IOException {
+        int read = 0;
+        while (read < BLOCK) {
+            final int n = this.in.read(this.header, read, BLOCK - read);
+            if (n == -1) {
+                if (read == 0) {
+                    return false;
+                }
+                throw new EOFException("truncated tar header");
+            }
+            read += n;
+        }
+        // the archive ends with empty blocks
+        for (final byte b : this.header) {
+            if (b != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void readFully(final byte[] bytes) throws IOException {
+        int read = 0;
+        while (read < bytes.length) {
+            final int n = this.in.read(bytes, read, bytes.length - read);
+            if (n == -1) {
+                throw new EOFException("truncated tar entry");
+            }
+            read += n;
+        }
+    }
+
+    private void skip(long n) throws IOException {
+        final byte[] buf = new byte[BLOCK];
+        while (n > 0) {
+            final int read = this.in.read(buf, 0, (int) Math.min(n, BLOCK));
+            if (read == -1) {
+                throw new EOFException("truncated tar entry");
+            }
+            n -= read;
+        }
+        this.remaining = 0;
+        this.padding = 0;
+    }
+
+    private String string(final int offset, final int length)
+            throws IOException {
+        int end = offset;
+        while (end < offset + length && this.header[end] != 0) {
+            end++;
+        }
+        return new String(this.header, offset, end - offset, "UTF-8");
+    }
+
+    private long octal(final int offset, final int length) {
+        long result = 0;
+        for (int i = offset; i < offset + length; i++) {
+            final byte b = this.header[i];
+            if (b >= '0' && b <= '7') {
+                result = (result << 3) + (b - '0');
+            }
+            else if (b == 0 || (b == ' ' && result > 0)) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    private static String trimNull(final String value) {
+        final int index = value.indexOf(0);
+        return index < 0 ? value : value.substring(0, index);
+    }
+
+    /**
+     * pax records look like "<length> path=<value>\n".
+     */
+    private static String paxPath(final String records) {
+        for (final String record : records.split("\n")) {
+            final int space = record.indexOf(' ');
+            if (space > 0 && record.startsWith("path=", space + 1)) {
+                return record.substring(space + 6);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,208 @@
+/**
+ *
+ */
+package de.saumya.mojo.ruby.gems;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import java.util.regex.Pattern;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.repository.ArtifactRepositoryPolicy;
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.StringUtils;
+
+/**
+ * versions scraped from the html directory listing of an artifact in a
+ * remote repository. the versions get cached in the local repository next
+ * to the maven metadata of the artifact. the update policy of the remote
+ * repository decides when the cache gets revalidated, which uses the ETag
+ * and Last-Modified headers of the last response. in offline mode only the
+ * cache is used.
+ */
+class VersionListingCache {
+
+    private static final Pattern LINK_END   = Pattern.compile("</a>.*");
+
+    private static final Pattern LINK_START = Pattern.compile(".*<a href=\".*\">");
+
+    private final File           localRepository;
+
+    private final boolean        offline;
+
+    VersionListingCache(final File localRepository, final boolean offline) {
+        this.localRepository = localRepository;
+        this.offline = offline;
+    }
+
+    List<String> versions(final ArtifactRepository repository,
+            final Artifact artifact) throws IOException {
+        final File file = new File(this.localRepository,
+                artifact.getGroupId().replace(".", "/") + "/"
+                        + artifact.getArtifactId() + "/versions-"
+                        + repository.getId() + ".properties");
+        final Properties cache = read(file);
+        if (this.offline || (cache != null && !isOutOfDate(repository, cache))) {
+            return cache == null ? new ArrayList<String>() : versions(cache);
+        }
+
+        final URL url = new URL(repository.getUrl() + "/"
+                + artifact.getGroupId().replace(".", "/") + "/"
+                + artifact.getArtifactId() + "/");
+        final URLConnection connection = url.openConnection();
+        if (cache != null && connection instanceof HttpURLConnection) {
+            if (cache.getProperty("etag") != null) {
+                connection.setRequestProperty("If-None-Match",
+                                              cache.getProperty("etag"));
+            }
+            if (cache.getProperty("lastModified") != null) {
+                connection.setIfModifiedSince(Long.parseLong(cache.getProperty("lastModified")));
+            }
+        }
+        try {
+            if (cache != null
+                    && connection instanceof HttpURLConnection
+                    && ((HttpURLConnection) connection).getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                cache.setProperty("checked",
+                                  Long.toString(System.currentTimeMillis()));
+                write(file, cache);
+                return versions(cache);
+            }
+            final List<String> versions = scrape(connection.getInputStream());
+
+            final Properties fresh = new Properties();
+            fresh.setProperty("versions", StringUtils.join(versions.iterator(),
+                                                           ","));
+            fresh.setProperty("checked",
+                              Long.toString(System.currentTimeMillis()));
+            if (connection.getHeaderField("ETag") != null) {
+                fresh.setProperty("etag", connection.getHeaderField("ETag"));
+            }
+            if (connection.getLastModified() > 0) {
+                fresh.setProperty("lastModified",
+                                  Long.toString(connection.getLastModified()));
+            }
+            write(file, fresh);
+            return versions;
+        }
+        catch (final IOException e) {
+            if (cache != null) {
+                // stale data is better than none
+                return versions(cache);
+            }
+            throw e;
+        }
+        finally {
+            if (connection instanceof HttpURLConnection) {
+                ((HttpURLConnection) connection).disconnect();
+            }
+        }
+    }
+
+    private List<String> scrape(final InputStream in) throws IOException {
+        final List<String> versions = new ArrayList<String>();
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(in,
+                "UTF-8"));
+        try {
+            String line = reader.readLine();
+            while (line != null) {
+                if (line.contains("<a href=")) {
+                    // first cut the end and then the beginning - allow greedy .*
+                    String version = LINK_START.matcher(LINK_END.matcher(line)
+                            .replaceFirst("")).replaceFirst("");
+                    if (version.endsWith("/")) {
+                        version = version.substring(0, version.length() - 1);
+                        if (!versions.contains(version)) {
+                            versions.add(version);
+                        }
+                    }
+                }
+                line = reader.readLine();
+            }
+        }
+        finally {
+            IOUtil.close(reader);
+        }
+        return versions;
+    }
+
+    private boolean isOutOfDate(final ArtifactRepository repository,
+            final Properties cache) {
+        final ArtifactRepositoryPolicy policy = repository.getReleases() == null
+                ? new ArtifactRepositoryPolicy()
+                : repository.getReleases();
+        try {
+            return policy.checkOutOfDate(new Date(Long.parseLong(cache.getProperty("checked",
+                                                                                   "0"))));
+        }
+        catch (final NumberFormatException e) {
+            return true;
+        }
+    }
+
+    private List<String> versions(final Properties cache) {
+        final List<String> versions = new ArrayList<String>();
+        for (final String version : StringUtils.split(cache.getProperty("versions",
+                                                                        ""),
+                                                      ",")) {
+            versions.add(version);
+        }
+        return versions;
+    }
+
+    private Properties read(final File file) {
+        if (!file.exists()) {
+            return null;
+        }
+        final Properties cache = new Properties();
+        InputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            cache.load(in);
+            return cache;
+        }
+        catch (final IOException e) {
+            return null;
+        }
+        finally {
+            IOUtil.close(in);
+        }
+    }
+
+    private void write(final File file, final Properties cache) {
+        file.getParentFile().mkdirs();
+        final File tmp = new File(file.getPath() + "." + Thread.currentThread().getId() + ".tmp");
+        OutputStream out = null;
+        try {
+            out = new FileOutputStream(tmp);
+            cache.store(out, "versions from the directory listing of the repository");
+            out.close();
+            out = null;
+            file.delete();
+            if (!tmp.renameTo(file)) {
+                tmp.delete();
+            }
+        }
+        catch (final IOException e) {
+            // the cache is only an optimization
+            tmp.delete();
+        }
+        finally {
+            IOUtil.close(out);
+        }
+    }
+}
@@ -5,6 +5,7 @@ package de.saumya.mojo.ruby.script;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -25,17 +26,23 @@ class AntLauncher extends AbstractLauncher {
 
     private final ScriptFactory factory;
 
+    private final AntLogAdapter logAdapter;
+
     private final Project       project;
 
+    private String              classpath;
+
     AntLauncher(final Logger logger, final ScriptFactory factory) {
         this.logger = logger;
         this.factory = factory;
+        this.logAdapter = new AntLogAdapter(logger);
         this.project = createAntProject();
     }
 
     @Override
     protected void doExecute(final File launchDirectory,
-            final List<String> args, final File outputFile) {
+            final List<String> args, final File outputFile)
+            throws ScriptException, IOException {
         final Java java = new Java();
         java.setProject(this.project);
         java.setClassname("org.jruby.Main");
@@ -53,6 +60,7 @@ class AntLauncher extends AbstractLauncher {
         // TODO add isDebugable to the logger and log only when debug is needed
         this.logger.debug("java classpath  : "
                 + this.project.getReference(MAVEN_CLASSPATH));
+        this.logger.debug("pathing jar     : " + classpath());
         if (this.factory.environment().size() > 0) {
             this.logger.debug("environment     :");
             for (final Map.Entry<String, String> entry : this.factory.environment().entrySet()) {
@@ -68,29 +76,119 @@ class AntLauncher extends AbstractLauncher {
             java.createArg().setValue(arg);
         }
 
-        java.createJvmarg().setValue("-cp");
-        java.createJvmarg()
-                .setPath((Path) this.project.getReference(MAVEN_CLASSPATH));
+        final List<String> jvmArgs = jvmArgs();
+        for (final String arg : jvmArgs) {
+            java.createJvmarg().setValue(arg);
+        }
+
+        if (outputFile != null) {
+            java.setOutput(outputFile);
+        }
+        final ExecutionMetrics metrics = new ExecutionMetrics(ExecutionMetrics.FORK,
+                launchDirectory,
+                args);
+        final long output = this.logAdapter.output();
+        // the output of the fork goes through a pump so the fork never
+        // waits for the maven log
+        final OutputPump pump = new OutputPump(this.logger,
+                this.factory.outputTee);
+        final Logger previous = this.logAdapter.use(pump);
+        int status = -1;
+        try {
+            status = fork(java, jvmArgs);
+        }
+        finally {
+            this.logAdapter.use(previous);
+            pump.close();
+            if (this.factory.metrics != null) {
+                metrics.finished(status);
+                if (outputFile != null) {
+                    metrics.output(outputFile);
+                }
+                else {
+                    metrics.outputBytes = this.logAdapter.output() - output;
+                }
+                this.factory.metrics.add(metrics);
+            }
+        }
+        if (status != 0) {
+            throw new ScriptException("some error in script " + args + ": "
+                    + status);
+        }
+    }
+
+    private int fork(final Java java, final List<String> jvmArgs)
+            throws IOException {
+        if (this.factory.classDataSharing == null) {
+            return java.executeJava();
+        }
+        else {
+            final List<String> command = new ArrayList<String>();
+            command.add(new File(new File(System.getProperty("java.home"),
+                    "bin"), "java").getAbsolutePath());
+            command.addAll(jvmArgs);
+            final ClassDataSharing.Fork fork = this.factory.classDataSharing.prepare(command);
+            for (final String arg : fork.jvmArgs) {
+                java.createJvmarg().setValue(arg);
+            }
+            try {
+                return java.executeJava();
+            }
+            finally {
+                this.factory.classDataSharing.done(fork, command);
+            }
+        }
+    }
+
+    private List<String> jvmArgs() {
+        final List<String> jvmArgs = new ArrayList<String>();
+        jvmArgs.add("-cp");
+        jvmArgs.add(classpath());
 
         if (!factory.jvmArgs.matches("(-client|-server)")) {
-        	java.createJvmarg().setValue("-client");	
-        } 
-        
+            jvmArgs.add("-client");
+        }
+
         if (!factory.jvmArgs.matches("-Xmx\\d+m")) {
-        	java.createJvmarg().setValue(DEFAULT_XMX);	
-        } 
-        
-        for (String arg : factory.jvmArgs.list) {
-        	java.createJvmarg().setValue(arg);	
+            jvmArgs.add(DEFAULT_XMX);
         }
-        
-        java.createJvmarg().setValue("-Xbootclasspath/a:"
+
+        jvmArgs.addAll(factory.jvmArgs.list);
+
+        jvmArgs.add("-Xbootclasspath/a:"
                 + this.factory.jrubyJar.getAbsolutePath());
+        return jvmArgs;
+    }
 
-        if (outputFile != null) {
-            java.setOutput(outputFile);
+    /**
+     * @return a pathing jar for the classpath or the classpath itself if the
+     *         pathing jar can not be created.
+     */
+    private String classpath() {
+        if (this.classpath == null) {
+            final List<String> elements = new ArrayList<String>();
+            for (final String path : this.factory.classpathElements) {
+                if (!path.contains("jruby-complete")) {
+                    elements.add(path);
+                }
+            }
+            if (elements.size() > 0) {
+                try {
+                    this.classpath = PathingJar.create(this.factory.cacheDirectory,
+                                                       elements)
+                            .getAbsolutePath();
+                }
+                catch (final IOException e) {
+                    this.logger.warn("could not create pathing jar: "
+                            + e.getMessage());
+                }
+            }
+            if (this.classpath == null) {
+                this.classpath = this.project.getReference(MAVEN_CLASSPATH)
+                        .toString();
+            }
         }
-        java.execute();
+        return this.classpath;
     }
 
     private Project createAntProject() {
@@ -105,7 +203,7 @@ class AntLauncher extends AbstractLauncher {
         }
 
         project.addReference(MAVEN_CLASSPATH, classPath);
-        project.addBuildListener(new AntLogAdapter(this.logger));
+        project.addBuildListener(this.logAdapter);
         return project;
     }
 
@@ -11,7 +11,10 @@ import de.saumya.mojo.ruby.Logger;
 
 class AntLogAdapter implements BuildListener {
 
-    private final Logger logger;
+    private Logger       logger;
+
+    // characters of output logged so far
+    private long         output;
 
     public AntLogAdapter(final Logger logger) {
         this.logger = logger;
@@ -42,9 +45,26 @@ class AntLogAdapter implements BuildListener {
     }
 
     public void messageLogged(final BuildEvent event) {
+        if (event.getMessage() != null
+                && event.getPriority() <= Project.MSG_INFO) {
+            this.output += event.getMessage().length() + 1;
+        }
         log(event);
     }
 
+    /**
+     * @return the previous logger
+     */
+    Logger use(final Logger logger) {
+        final Logger previous = this.logger;
+        this.logger = logger;
+        return previous;
+    }
+
+    long output() {
+        return this.output;
+    }
+
     private void log(final BuildEvent event) {
         final int priority = event.getPriority();
         switch (priority) {
@@ -0,0 +1,238 @@
+/**
+ *
+ */
+package de.saumya.mojo.ruby.script;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import de.saumya.mojo.ruby.Digests;
+import de.saumya.mojo.ruby.Logger;
+
+/**
+ * class data sharing archive for the forked jruby JVMs. the first fork with a
+ * given jruby jar and classpath dumps all its loaded classes into an archive
+ * (-XX:ArchiveClassesAtExit) and all the following forks map that archive
+ * (-XX:SharedArchiveFile) instead of loading and verifying the jruby classes
+ * again. this needs a JVM with version 13 or newer.
+ *
+ * optionally the startup of jruby gets measured with and without the archive
+ * after it got created. the result is logged and kept next to the archive.
+ * since this launches extra JVMs it is off by default.
+ */
+class ClassDataSharing {
+
+    private static final int         PROBES  = 3;
+
+    // archives which get dumped right now by a fork of this JVM
+    private static final Set<File>   DUMPING = new HashSet<File>();
+
+    private final Logger             logger;
+
+    private final File               directory;
+
+    private final boolean            report;
+
+    ClassDataSharing(final Logger logger, final File directory,
+            final boolean report) {
+        this.logger = logger;
+        this.directory = directory;
+        this.report = report;
+    }
+
+    static boolean isSupported() {
+        final String version = System.getProperty("java.specification.version",
+                                                  "1.5");
+        final String[] parts = version.split("\\.");
+        try {
+            final int major = Integer.parseInt(parts[0].equals("1")
+                    && parts.length > 1 ? parts[1] : parts[0]);
+            return major >= 13;
+        }
+        catch (final NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @param command
+     *            the java command with all the jvm arguments which will be
+     *            used for the fork
+     * @return the jvm arguments to use the archive for the given command or
+     *         to create it.
+     */
+    Fork prepare(final List<String> command) throws IOException {
+        final File archive = archive(command);
+        if (archive.exists()) {
+            this.logger.debug("class data sharing archive: " + archive);
+            return new Fork(archive, null, "-XX:SharedArchiveFile="
+                    + archive.getAbsolutePath(), "-Xshare:auto");
+        }
+        synchronized (DUMPING) {
+            if (!DUMPING.add(archive)) {
+                // another thread creates the archive already
+                return new Fork(archive, null);
+            }
+        }
+        this.directory.mkdirs();
+        final File dump = File.createTempFile(archive.getName(),
+                                              ".tmp",
+                                              this.directory);
+        dump.delete();
+        this.logger.info("create class data sharing archive for jruby: "
+                + archive);
+        return new Fork(archive, dump, "-XX:ArchiveClassesAtExit="
+                + dump.getAbsolutePath());
+    }
+
+    /**
+     * to be called after the fork terminated. when the fork created the
+     * archive it gets put in place and the startup times get measured if
+     * requested.
+     */
+    void done(final Fork fork, final List<String> command) {
+        if (fork.dump == null) {
+            return;
+        }
+        try {
+            if (fork.dump.exists() && !fork.archive.exists()
+                    && fork.dump.renameTo(fork.archive)) {
+                if (this.report) {
+                    report(fork.archive, command);
+                }
+            }
+            else {
+                fork.dump.delete();
+            }
+        }
+        finally {
+            synchronized (DUMPING) {
+                DUMPING.remove(fork.archive);
+            }
+        }
+    }
+
+    private void report(final File archive, final List<String> command) {
+        final List<String> without = new ArrayList<String>(command);
+        without.add("org.jruby.Main");
+        without.add("-e");
+        without.add("nil");
+        final List<String> with = new ArrayList<String>(command);
+        with.add("-XX:SharedArchiveFile=" + archive.getAbsolutePath());
+        with.add("-Xshare:auto");
+        with.addAll(without.subList(command.size(), without.size()));
+
+        final long before = startup(without);
+        final long after = startup(with);
+        if (before < 0 || after < 0) {
+            this.logger.warn("could not measure the jruby startup for " + archive);
+            return;
+        }
+        this.logger.info("jruby startup without class data sharing: " + before
+                + " ms, with class data sharing: " + after + " ms");
+
+        final Properties report = new Properties();
+        report.setProperty("startup.without", Long.toString(before));
+        report.setProperty("startup.with", Long.toString(after));
+        report.setProperty("java.version", System.getProperty("java.version"));
+        OutputStream out = null;
+        try {
+            out = new FileOutputStream(new File(archive.getPath() + ".report"));
+            report.store(out, "jruby startup in ms (best of " + PROBES + ")");
+        }
+        catch (final IOException e) {
+            this.logger.warn("could not write startup report: " + e.getMessage());
+        }
+        finally {
+            if (out != null) {
+                try {
+                    out.close();
+                }
+                catch (final IOException ignore) {
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the best startup time of some probes or -1 if jruby did not
+     *         start.
+     */
+    private long startup(final List<String> command) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < PROBES; i++) {
+            final long start = System.currentTimeMillis();
+            try {
+                final Process process = new ProcessBuilder(command).redirectErrorStream(true)
+                        .start();
+                final InputStream in = process.getInputStream();
+                final byte[] buf = new byte[4096];
+                while (in.read(buf) != -1) {
+                    // discard
+                }
+                if (process.waitFor() != 0) {
+                    return -1;
+                }
+            }
+            catch (final IOException e) {
+                return -1;
+            }
+            catch (final InterruptedException e) {
+                return -1;
+            }
+            best = Math.min(best, System.currentTimeMillis() - start);
+        }
+        return best;
+    }
+
+    /**
+     * the archive is specific to the JVM, the jruby jar and the classpath
+     * which are all part of the command.
+     */
+    private File archive(final List<String> command) throws IOException {
+        final MessageDigest digest = Digests.sha1();
+        update(digest, System.getProperty("java.home"));
+        update(digest, System.getProperty("java.vm.version"));
+        for (final String arg : command) {
+            update(digest, arg);
+            if (arg.startsWith("-Xbootclasspath/a:")) {
+                final File jar = new File(arg.substring("-Xbootclasspath/a:".length()));
+                update(digest, jar.lastModified() + "#" + jar.length());
+            }
+        }
+        return new File(this.directory, "jruby-" + Digests.hex(digest.digest())
+                + ".jsa");
+    }
+
+    private static void update(final MessageDigest digest, final String value)
+            throws IOException {
+        digest.update(String.valueOf(value).getBytes("UTF-8"));
+        digest.update((byte) 0);
+    }
+
+    static class Fork {
+
+        final File         archive;
+
+        final File         dump;
+
+        final List<String> jvmArgs = new ArrayList<String>();
+
+        Fork(final File archive, final File dump, final String... jvmArgs) {
+            this.archive = archive;
+            this.dump = dump;
+            for (final String arg : jvmArgs) {
+                this.jvmArgs.add(arg);
+            }
+        }
+    }
+}
@@ -3,18 +3,25 @@
  */
 package de.saumya.mojo.ruby.script;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintStream;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.codehaus.classworlds.ClassRealm;
-import org.codehaus.classworlds.DuplicateRealmException;
-import org.codehaus.classworlds.NoSuchRealmException;
 
 import de.saumya.mojo.ruby.Logger;
 
@@ -23,142 +30,149 @@ class EmbeddedLauncher extends AbstractLauncher {
     private static final Class<?>[] No_ARG_TYPES = new Class[0];
     private static final Object[]   NO_ARGS      = new Object[0];
 
-    private final ClassRealm        classRealm;
+    /**
+     * limits the number of jruby runtimes which run in parallel, i.e. with
+     * parallel builds.
+     */
+    static final Semaphore          RUNTIMES     = new Semaphore(Integer.getInteger("jruby.embedded.runtimes",
+                                                                                    Runtime.getRuntime()
+                                                                                            .availableProcessors()),
+                                                                 true);
+
+    private static final int        BUFFER_SIZE  = 64 * 1024;
+
+    private static final ReadWriteLock PROPERTIES = new ReentrantReadWriteLock();
+
     private final ScriptFactory     factory;
     private final Logger            logger;
 
-    public EmbeddedLauncher(final Logger logger, final ScriptFactory factory)
-            throws ScriptException {
+    public EmbeddedLauncher(final Logger logger, final ScriptFactory factory) {
         this.logger = logger;
         this.factory = factory;
-        if (factory.classRealm != null) {
-            this.classRealm = cloneClassRealm(factory.jrubyJar,
-                                              factory.classpathElements,
-                                              factory.classRealm);
-        }
-        else {
-            this.classRealm = null;
-        }
-    }
-
-    private ClassRealm cloneClassRealm(final File jrubyJar,
-            final List<String> classpathElements, final ClassRealm classRealm)
-            throws ScriptException {
-        // TODO how to reuse the plugin realm ?
-//        for (final String classpath : classpathElements) {
-//            if (classpath.equals(jrubyJar.getAbsolutePath())) {
-//                return null;
-//            }
-//        }
-        ClassRealm newClassRealm;
-        try {
-            ClassRealm jruby;
-            try {
-                jruby = classRealm.getWorld().getRealm("jruby");
-            }
-            catch (final NoSuchRealmException e) {
-                jruby = classRealm.getWorld().newRealm("jruby");
-                jruby.addConstituent(jrubyJar.toURI().toURL());
-            }
-            try {
-                jruby.getWorld().disposeRealm("pom");
-            }
-            catch (final NoSuchRealmException e) {
-                // ignored
-            }
-            newClassRealm = jruby.createChildRealm("pom");
-            for (final String classpath : classpathElements) {
-                if (!classpath.contains("jruby-complete")) {
-                    newClassRealm.addConstituent(new File(classpath).toURI()
-                            .toURL());
-                }
-            }
-        }
-        catch (final DuplicateRealmException e) {
-            throw new ScriptException("error in naming realms", e);
-        }
-        catch (final MalformedURLException e) {
-            throw new ScriptException("hmm. found some malformed URL", e);
-        }
-
-        return newClassRealm;
     }
 
     @Override
     protected void doExecute(final File launchDirectory,
             final List<String> args, final File outputFile)
             throws ScriptException, IOException {
-        doExecute(launchDirectory, outputFile, args, true);
+        doExecute(launchDirectory, outputFile, args);
     }
 
     private void doExecute(final File launchDirectory, final File outputFile,
-            final List<String> args, final boolean warn)
+            final List<String> args)
             throws ScriptException, IOException {
         final String currentDir;
         if (launchDirectory != null) {
-            currentDir = System.getProperty("user.dir");
             logger.debug("launch directory: "
                     + launchDirectory.getAbsolutePath());
-            System.setProperty("user.dir", launchDirectory.getAbsolutePath());
+            currentDir = launchDirectory.getAbsolutePath();
         }
         else {
-            currentDir = null;
+            currentDir = System.getProperty("user.dir");
         }
 
-        args.addAll(0, this.factory.switches.list);
+        final List<String> arguments = new ArrayList<String>(this.factory.switches.list);
+        arguments.addAll(args);
 
-        if (warn) {
-            if (this.factory.jvmArgs.list.size() > 0) {
-                this.logger.warn("have to ignore jvm arguments and properties in the current setup");
-            }
-            if (this.factory.environment().size() > 0) {
-                this.logger.warn("have to ignore environment settings in the current setup");
-            }
-        }
+        final Map<String, String> env = environment();
+        final Map<String, String> properties = systemProperties();
 
-        final PrintStream output = System.out;
+        PrintStream output = System.out;
+        CountingOutputStream counter = null;
         ClassLoader current = null;
+        ClassRealm classRealm = null;
+        // system properties are global so executions with properties run
+        // exclusively
+        final Lock lock = properties.size() > 0
+                ? PROPERTIES.writeLock()
+                : PROPERTIES.readLock();
+        final Map<String, String> oldProperties = new HashMap<String, String>();
         try {
+            RUNTIMES.acquire();
+        }
+        catch (final InterruptedException e) {
+            throw new ScriptException("interrupted while waiting for a jruby runtime",
+                    e);
+        }
+        lock.lock();
+        final ExecutionMetrics metrics = new ExecutionMetrics(ExecutionMetrics.EMBEDDED,
+                launchDirectory,
+                args);
+        int status = -1;
+        try {
+            for (final Map.Entry<String, String> entry : properties.entrySet()) {
+                oldProperties.put(entry.getKey(),
+                                  System.setProperty(entry.getKey(),
+                                                     entry.getValue()));
+            }
             if (outputFile != null) {
-                final PrintStream writer = new PrintStream(outputFile);
-                System.setOut(writer);
+                output = new PrintStream(new BufferedOutputStream(new FileOutputStream(outputFile),
+                        BUFFER_SIZE));
                 this.logger.debug("output file: " + outputFile);
             }
-            this.logger.debug("args: " + args);
+            else if (this.factory.metrics != null) {
+                counter = new CountingOutputStream(System.out);
+                output = new PrintStream(counter, true);
+            }
+            this.logger.debug("args: " + arguments);
 
-            if (this.classRealm != null) {
+            final ClassLoader loader;
+            if (this.factory.classRealm != null) {
+                classRealm = RealmCache.acquire(this.factory.classRealm,
+                                                this.factory.jrubyJar,
+                                                this.factory.classpathElements);
+                loader = classRealm.getClassLoader();
+                // the context classloader is local to the current thread
                 current = Thread.currentThread().getContextClassLoader();
-                Thread.currentThread()
-                        .setContextClassLoader(this.classRealm.getClassLoader());
-            }
-            // use reflection to avoid having jruby as plugin dependency
-            final Class<?> clazz = Thread.currentThread()
-                    .getContextClassLoader()
-                    .loadClass("org.jruby.Main");
-            final Object main = clazz.newInstance();
+                Thread.currentThread().setContextClassLoader(loader);
+            }
+            else {
+                loader = Thread.currentThread().getContextClassLoader();
+            }
+
+            // use reflection to avoid having jruby as plugin dependency.
+            // each execution gets its own configuration and runtime with its
+            // own output, error stream and current directory, so neither
+            // System.out nor user.dir needs to change.
+            final Class<?> configClass = loader.loadClass("org.jruby.RubyInstanceConfig");
+            final Object config = configClass.newInstance();
+            configClass.getMethod("setCurrentDirectory", String.class)
+                    .invoke(config, currentDir);
+            configClass.getMethod("setOutput", PrintStream.class)
+                    .invoke(config, output);
+            configClass.getMethod("setError", PrintStream.class)
+                    .invoke(config, System.err);
+            configClass.getMethod("setLoader", ClassLoader.class)
+                    .invoke(config, loader);
+            if (env.size() > 0) {
+                configClass.getMethod("setEnvironment", Map.class)
+                        .invoke(config, env);
+            }
+
+            final Class<?> clazz = loader.loadClass("org.jruby.Main");
+            final Object main = clazz.getConstructor(configClass)
+                    .newInstance(config);
             final Method m = clazz.getMethod("run", String[].class);
             final long start = System.currentTimeMillis();
+            metrics.started();
             final Object result = m.invoke(main,
-                                           (Object) args.toArray(new String[args.size()]));
+                                           (Object) arguments.toArray(new String[arguments.size()]));
             final long end = System.currentTimeMillis();
 
             this.logger.debug("time " + (end - start));
 
-            final int status;
             if (result instanceof Integer) {
                 // jruby before version 1.5
                 status = ((Integer) result);
             }
             else {
                 // jruby from version 1.5 onwards
-                // TODO better error handling like error messages and . . .
-                // TODO see org.jruby.Main
                 final Method statusMethod = result.getClass()
                         .getMethod("getStatus", No_ARG_TYPES);
                 status = (Integer) statusMethod.invoke(result, NO_ARGS);
             }
             if (status != 0) {
-                throw new ScriptException("some error in script " + args
+                throw new ScriptException("some error in script " + arguments
                         + ": " + status);
             }
 
@@ -182,41 +196,116 @@ class EmbeddedLauncher extends AbstractLauncher {
             if (current != null) {
                 Thread.currentThread().setContextClassLoader(current);
             }
-            System.setOut(output);
-            if (currentDir != null) {
-                System.setProperty("user.dir", currentDir);
+            if (counter != null) {
+                output.flush();
+            }
+            else if (output != System.out) {
+                output.close();
             }
-            if (this.classRealm != null) {
-                try {
-                    this.classRealm.getWorld().disposeRealm("pom");
-                    // jrubyClassRealm.setParent(null);
+            if (this.factory.metrics != null) {
+                metrics.finished(status);
+                if (counter != null) {
+                    metrics.outputBytes = counter.count;
                 }
-                catch (final NoSuchRealmException e) {
-                    // ignore
+                else {
+                    metrics.output(outputFile);
                 }
+                this.factory.metrics.add(metrics);
+            }
+            if (classRealm != null) {
+                RealmCache.release(classRealm);
             }
+            for (final Map.Entry<String, String> entry : oldProperties.entrySet()) {
+                if (entry.getValue() == null) {
+                    System.clearProperty(entry.getKey());
+                }
+                else {
+                    System.setProperty(entry.getKey(), entry.getValue());
+                }
+            }
+            lock.unlock();
+            RUNTIMES.release();
+        }
+    }
 
+    /**
+     * the environment of the maven JVM merged with the environment of the
+     * factory, i.e. a null value removes the variable.
+     */
+    private Map<String, String> environment() {
+        final Map<String, String> env = this.factory.environment();
+        if (env.size() == 0) {
+            return env;
         }
+        final Map<String, String> result = new HashMap<String, String>(System.getenv());
+        for (final Map.Entry<String, String> entry : env.entrySet()) {
+            if (entry.getValue() == null) {
+                result.remove(entry.getKey());
+            }
+            else {
+                result.put(entry.getKey(), entry.getValue());
+            }
+        }
+        this.logger.debug("environment     :");
+        for (final Map.Entry<String, String> entry : env.entrySet()) {
+            this.logger.debug("\t\t" + entry.getKey() + " => "
+                    + entry.getValue());
+        }
+        return result;
     }
 
-    public void executeScript(final File launchDirectory, final String script,
-            final List<String> args, final File outputFile)
-            throws ScriptException, IOException {
-        final StringBuilder buf = new StringBuilder();
-        for (final Map.Entry<String, String> entry : this.factory.environment().entrySet()) {
-            if (entry.getValue() != null) {
-                buf.append("ENV['")
-                        .append(entry.getKey())
-                        .append("']='")
-                        .append(entry.getValue())
-                        .append("';");
+    /**
+     * picks the system properties (-Dkey=value) from the jvm arguments. all
+     * other jvm arguments only make sense for a new JVM.
+     */
+    private Map<String, String> systemProperties() {
+        final Map<String, String> properties = new HashMap<String, String>();
+        for (final String arg : this.factory.jvmArgs.list) {
+            if (arg.startsWith("-D") && arg.length() > 2) {
+                final int index = arg.indexOf('=');
+                if (index > 2) {
+                    properties.put(arg.substring(2, index),
+                                   arg.substring(index + 1));
+                }
+                else if (index < 0) {
+                    properties.put(arg.substring(2), "");
+                }
+            }
+            else {
+                this.logger.debug("ignore jvm argument in embedded mode: " + arg);
             }
         }
-        buf.append(script);
+        return properties;
+    }
 
+    public void executeScript(final File launchDirectory, final String script,
+            final List<String> args, final File outputFile)
+            throws ScriptException, IOException {
         args.add(0, "-e");
-        args.add(1, buf.toString());
+        args.add(1, script);
         args.add(2, "--");
-        doExecute(launchDirectory, outputFile, args, false);
+        doExecute(launchDirectory, outputFile, args);
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        long count;
+
+        CountingOutputStream(final OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            this.out.write(b);
+            this.count++;
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len)
+                throws IOException {
+            this.out.write(b, off, len);
+            this.count += len;
+        }
     }
 }
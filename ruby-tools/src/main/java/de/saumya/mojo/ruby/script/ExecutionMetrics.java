@@ -0,0 +1,60 @@
+/**
+ *
+ */
+package de.saumya.mojo.ruby.script;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * timing and resource usage of a single script execution. values which can
+ * not be measured with the given launcher stay at -1.
+ */
+class ExecutionMetrics {
+
+    static final String FORK     = "fork";
+    static final String WORKER   = "worker";
+    static final String EMBEDDED = "embedded";
+
+    final String        mode;
+
+    final File          directory;
+
+    final List<String>  args;
+
+    private final long  start    = System.currentTimeMillis();
+
+    /** time until the script itself starts, i.e. JVM or runtime setup */
+    long                startup  = -1;
+
+    long                wall     = -1;
+
+    int                 exitCode = -1;
+
+    /** peak resident set size of the jruby JVM during the execution in kB */
+    long                peakRss  = -1;
+
+    long                outputBytes = -1;
+
+    ExecutionMetrics(final String mode, final File directory,
+            final List<String> args) {
+        this.mode = mode;
+        this.directory = directory;
+        this.args = args;
+    }
+
+    void started() {
+        this.startup = System.currentTimeMillis() - this.start;
+    }
+
+    void finished(final int exitCode) {
+        this.wall = System.currentTimeMillis() - this.start;
+        this.exitCode = exitCode;
+    }
+
+    void output(final File outputFile) {
+        if (outputFile != null && outputFile.exists()) {
+            this.outputBytes = outputFile.length();
+        }
+    }
+}
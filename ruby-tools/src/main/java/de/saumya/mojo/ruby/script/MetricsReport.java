@@ -0,0 +1,106 @@
+/**
+ *
+ */
+package de.saumya.mojo.ruby.script;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import de.saumya.mojo.ruby.Logger;
+
+/**
+ * appends the metrics of each script execution as one line to a CSV file.
+ * the file gets shared by all the mojo executions of a module (and by all
+ * modules if they are configured with the same file), the label tells them
+ * apart. values which could not be measured stay empty.
+ */
+class MetricsReport {
+
+    private static final String HEADER = "timestamp,label,mode,startup_ms,wall_ms,exit_code,peak_rss_kb,output_bytes,directory,script";
+
+    private static final int    MAX_SCRIPT = 256;
+
+    private final File          file;
+
+    private final String        label;
+
+    private final Logger        logger;
+
+    MetricsReport(final File file, final String label, final Logger logger) {
+        this.file = file;
+        this.label = label;
+        this.logger = logger;
+    }
+
+    void add(final ExecutionMetrics metrics) {
+        final StringBuilder line = new StringBuilder();
+        line.append(new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS").format(new Date()))
+                .append(',');
+        append(line, this.label).append(',');
+        line.append(metrics.mode).append(',');
+        measured(line, metrics.startup).append(',');
+        measured(line, metrics.wall).append(',');
+        measured(line, metrics.exitCode).append(',');
+        measured(line, metrics.peakRss).append(',');
+        measured(line, metrics.outputBytes).append(',');
+        append(line, metrics.directory == null
+                ? ""
+                : metrics.directory.getAbsolutePath()).append(',');
+        final StringBuilder script = new StringBuilder();
+        for (final String arg : metrics.args) {
+            if (script.length() > 0) {
+                script.append(' ');
+            }
+            script.append(arg.replace('\n', ' '));
+        }
+        if (script.length() > MAX_SCRIPT) {
+            script.setLength(MAX_SCRIPT - 3);
+            script.append("...");
+        }
+        append(line, script).append('\n');
+
+        // all reports of this JVM share the lock since they might write the
+        // same file
+        synchronized (MetricsReport.class) {
+            try {
+                final boolean exists = this.file.exists();
+                if (!exists) {
+                    this.file.getParentFile().mkdirs();
+                }
+                if (!exists) {
+                    line.insert(0, HEADER + "\n");
+                }
+                // one write, so lines of other JVMs do not get mixed in
+                final OutputStream out = new FileOutputStream(this.file, true);
+                try {
+                    out.write(line.toString().getBytes("UTF-8"));
+                }
+                finally {
+                    out.close();
+                }
+            }
+            catch (final IOException e) {
+                this.logger.warn("could not write metrics to " + this.file
+                        + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static StringBuilder measured(final StringBuilder line,
+            final long value) {
+        return value == -1 ? line : line.append(value);
+    }
+
+    private static StringBuilder append(final StringBuilder line,
+            final CharSequence value) {
+        final String v = value.toString();
+        if (v.indexOf(',') < 0 && v.indexOf('"') < 0 && v.indexOf('\n') < 0) {
+            return line.append(v);
+        }
+        return line.append('"').append(v.replace("\"", "\"\"")).append('"');
+    }
+}
@@ -0,0 +1,189 @@
+/**
+ *
+ */
+package de.saumya.mojo.ruby.script;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import de.saumya.mojo.ruby.Logger;
+
+/**
+ * logger which hands the output of a script over to a background thread
+ * which feeds the maven log. the buffer between them is bounded. when the
+ * buffer is full debug and info lines get dropped and counted, the count
+ * gets logged when the pump gets closed. warnings and errors are never
+ * dropped, for them the producer waits until the buffer has room again.
+ * with a tee file the output of the script goes into that file as well,
+ * including the dropped lines. debug lines are not output of the script but
+ * the verbose messages of ant, so they stay out of the tee file.
+ */
+class OutputPump implements Logger {
+
+    static final int                CAPACITY = Integer.getInteger("jruby.output.buffer",
+                                                                  10000);
+
+    private static final int        DEBUG    = 0;
+    private static final int        INFO     = 1;
+    private static final int        WARN     = 2;
+    private static final int        ERROR    = 3;
+
+    private static final Line       EOF      = new Line(INFO, null);
+
+    private final Logger            logger;
+
+    private final BlockingQueue<Line> queue;
+
+    private final Thread            thread;
+
+    private final Writer            tee;
+
+    private final File              teeFile;
+
+    private long                    dropped;
+
+    private static class Line {
+        final int    level;
+        final String text;
+
+        Line(final int level, final String text) {
+            this.level = level;
+            this.text = text;
+        }
+    }
+
+    OutputPump(final Logger logger, final File teeFile) throws IOException {
+        this(logger, teeFile, CAPACITY);
+    }
+
+    OutputPump(final Logger logger, final File teeFile, final int capacity)
+            throws IOException {
+        this.logger = logger;
+        this.queue = new ArrayBlockingQueue<Line>(capacity);
+        this.teeFile = teeFile;
+        if (teeFile != null) {
+            teeFile.getAbsoluteFile().getParentFile().mkdirs();
+            this.tee = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(teeFile,
+                    true),
+                    "UTF-8"));
+        }
+        else {
+            this.tee = null;
+        }
+        this.thread = new Thread("jruby-output-pump") {
+            @Override
+            public void run() {
+                pump();
+            }
+        };
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    private void pump() {
+        try {
+            Line line = this.queue.take();
+            while (line != EOF) {
+                switch (line.level) {
+                case DEBUG:
+                    this.logger.debug(line.text);
+                    break;
+                case WARN:
+                    this.logger.warn(line.text);
+                    break;
+                case ERROR:
+                    this.logger.error(line.text);
+                    break;
+                default:
+                    this.logger.info(line.text);
+                }
+                line = this.queue.take();
+            }
+        }
+        catch (final InterruptedException e) {
+            // closed
+        }
+    }
+
+    private void add(final int level, final CharSequence text) {
+        final String line = String.valueOf(text);
+        if (this.tee != null && level > DEBUG) {
+            synchronized (this.tee) {
+                try {
+                    this.tee.write(line);
+                    this.tee.write('\n');
+                }
+                catch (final IOException e) {
+                    // the log is more important than the tee
+                }
+            }
+        }
+        final Line entry = new Line(level, line);
+        if (level >= WARN) {
+            // the line which explains a failure must not get lost
+            try {
+                this.queue.put(entry);
+                return;
+            }
+            catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        else if (this.queue.offer(entry)) {
+            return;
+        }
+        synchronized (this) {
+            this.dropped++;
+        }
+    }
+
+    public void debug(final CharSequence content) {
+        add(DEBUG, content);
+    }
+
+    public void info(final CharSequence content) {
+        add(INFO, content);
+    }
+
+    public void warn(final CharSequence content) {
+        add(WARN, content);
+    }
+
+    public void error(final CharSequence content) {
+        add(ERROR, content);
+    }
+
+    /**
+     * waits until all the buffered lines are logged and logs a summary of
+     * the dropped lines.
+     */
+    void close() {
+        try {
+            this.queue.put(EOF);
+            this.thread.join();
+        }
+        catch (final InterruptedException e) {
+            this.thread.interrupt();
+        }
+        if (this.tee != null) {
+            try {
+                this.tee.close();
+            }
+            catch (final IOException e) {
+                this.logger.warn("could not write " + this.teeFile + ": "
+                        + e.getMessage());
+            }
+        }
+        if (this.dropped > 0) {
+            this.logger.warn("skipped " + this.dropped + " lines of output"
+                    + (this.teeFile == null ? "" : ", see " + this.teeFile
+                            + " for the full output"));
+        }
+    }
+}
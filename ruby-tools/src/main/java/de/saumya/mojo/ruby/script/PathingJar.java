@@ -0,0 +1,77 @@
+/**
+ *
+ */
+package de.saumya.mojo.ruby.script;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import de.saumya.mojo.ruby.Digests;
+
+/**
+ * manifest-only jar with a Class-Path header which lists all the classpath
+ * elements. the forked JVM then gets a single jar as classpath instead of a
+ * long -cp argument. the jar gets cached per distinct classpath and only
+ * written when it does not exist yet.
+ */
+class PathingJar {
+
+    // do no initialize this
+    private PathingJar() {
+    }
+
+    static File create(final File directory, final List<String> classpath)
+            throws IOException {
+        final StringBuilder header = new StringBuilder();
+        for (final String path : classpath) {
+            if (header.length() > 0) {
+                header.append(' ');
+            }
+            header.append(url(new File(path)));
+        }
+        final File jar = new File(directory, "classpath-" + Digests.sha1(header)
+                + ".jar");
+        if (jar.exists()) {
+            return jar;
+        }
+
+        final Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION,
+                                         "1.0");
+        manifest.getMainAttributes().put(Attributes.Name.CLASS_PATH,
+                                         header.toString());
+        directory.mkdirs();
+        // write to a temp file first so parallel builds never see a half
+        // written jar
+        final File tmp = File.createTempFile(jar.getName(), ".tmp", directory);
+        final JarOutputStream out = new JarOutputStream(new FileOutputStream(tmp),
+                manifest);
+        out.close();
+        if (!tmp.renameTo(jar)) {
+            tmp.delete();
+            if (!jar.exists()) {
+                throw new IOException("could not create " + jar);
+            }
+        }
+        return jar;
+    }
+
+    /**
+     * everything which is not a jar or zip file is taken as directory and
+     * needs a trailing slash, even if the directory does not exist yet.
+     */
+    private static String url(final File file) {
+        String url = file.getAbsoluteFile().toURI().toString();
+        final String name = file.getName().toLowerCase();
+        if (!name.endsWith(".jar") && !name.endsWith(".zip")
+                && !url.endsWith("/")) {
+            url = url + "/";
+        }
+        return url;
+    }
+}
@@ -0,0 +1,163 @@
+/**
+ *
+ */
+package de.saumya.mojo.ruby.script;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.codehaus.classworlds.ClassRealm;
+import org.codehaus.classworlds.DuplicateRealmException;
+import org.codehaus.classworlds.NoSuchRealmException;
+
+/**
+ * cache of the class realms with the jruby jar and the classpath of the
+ * project. the realms get handed out per execution and are reference
+ * counted. unused realms get disposed in least-recently-used order when the
+ * cache grows beyond its limit. this way the executions after the first one
+ * find their classes already loaded.
+ */
+class RealmCache {
+
+    private static final int                MAX_REALMS = 4;
+
+    private static final Map<String, Entry> REALMS     = new LinkedHashMap<String, Entry>(16,
+                                                               0.75f,
+                                                               true);
+
+    private static int                      counter    = 0;
+
+    private static class Entry {
+        final ClassRealm realm;
+        int              references;
+
+        Entry(final ClassRealm realm) {
+            this.realm = realm;
+        }
+    }
+
+    // do no initialize this
+    private RealmCache() {
+    }
+
+    /**
+     * @param jruby
+     *            the realm with the jruby jar and the parent of the new realm
+     * @return the realm with all the classpath elements. it needs to be given
+     *         back via {@link #release(ClassRealm)}.
+     */
+    static ClassRealm acquire(final ClassRealm jruby, final File jrubyJar,
+            final List<String> classpathElements) throws ScriptException {
+        final String key = key(jruby, jrubyJar, classpathElements);
+        synchronized (REALMS) {
+            Entry entry = REALMS.get(key);
+            if (entry == null) {
+                entry = new Entry(newRealm(jruby, classpathElements));
+                REALMS.put(key, entry);
+            }
+            entry.references++;
+            evict();
+            return entry.realm;
+        }
+    }
+
+    static void release(final ClassRealm realm) {
+        synchronized (REALMS) {
+            for (final Entry entry : REALMS.values()) {
+                if (entry.realm == realm) {
+                    entry.references--;
+                    break;
+                }
+            }
+            evict();
+        }
+    }
+
+    private static void evict() {
+        final Iterator<Entry> entries = REALMS.values().iterator();
+        while (REALMS.size() > MAX_REALMS && entries.hasNext()) {
+            final Entry entry = entries.next();
+            if (entry.references <= 0) {
+                entries.remove();
+                try {
+                    entry.realm.getWorld().disposeRealm(entry.realm.getId());
+                }
+                catch (final NoSuchRealmException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    private static ClassRealm newRealm(final ClassRealm jruby,
+            final List<String> classpathElements) throws ScriptException {
+        try {
+            final ClassRealm realm = jruby.createChildRealm("pom-" + (++counter));
+            for (final String classpath : classpathElements) {
+                if (!classpath.contains("jruby-complete")) {
+                    realm.addConstituent(new File(classpath).toURI().toURL());
+                }
+            }
+            return realm;
+        }
+        catch (final DuplicateRealmException e) {
+            throw new ScriptException("error in naming realms", e);
+        }
+        catch (final MalformedURLException e) {
+            throw new ScriptException("hmm. found some malformed URL", e);
+        }
+    }
+
+    /**
+     * the key includes size and modification time of the classpath elements
+     * so a changed jar gets a fresh realm. for directories it includes the
+     * newest modification time and the number of files inside, so
+     * recompiled, added or deleted classes get a fresh realm as well.
+     */
+    private static String key(final ClassRealm jruby, final File jrubyJar,
+            final List<String> classpathElements) {
+        final StringBuilder key = new StringBuilder();
+        // the realms and worlds of the classworlds API are adapters which
+        // get created on each call, the classloader behind them is the same
+        key.append(System.identityHashCode(jruby.getClassLoader()))
+                .append(File.pathSeparator)
+                .append(jrubyJar.getAbsolutePath());
+        for (final String classpath : classpathElements) {
+            final File file = new File(classpath);
+            key.append(File.pathSeparator).append(file.getAbsolutePath());
+            if (file.isDirectory()) {
+                final long[] latestAndCount = { file.lastModified(), 0 };
+                scan(file, latestAndCount);
+                key.append('@')
+                        .append(latestAndCount[0])
+                        .append('#')
+                        .append(latestAndCount[1]);
+            }
+            else {
+                key.append('@')
+                        .append(file.lastModified())
+                        .append('#')
+                        .append(file.length());
+            }
+        }
+        return key.toString();
+    }
+
+    private static void scan(final File dir, final long[] latestAndCount) {
+        final File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (final File file : files) {
+            latestAndCount[0] = Math.max(latestAndCount[0], file.lastModified());
+            latestAndCount[1]++;
+            if (file.isDirectory()) {
+                scan(file, latestAndCount);
+            }
+        }
+    }
+}
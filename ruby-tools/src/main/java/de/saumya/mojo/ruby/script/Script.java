@@ -10,7 +10,7 @@ import java.net.URL;
 public class Script extends Arguments {
 
     private final ScriptFactory scriptFactory;
-    private final String        script;
+    final String                script;
 
     Script(final ScriptFactory scriptFactory) {
         this.scriptFactory = scriptFactory;
@@ -0,0 +1,242 @@
+/**
+ *
+ */
+package de.saumya.mojo.ruby.script;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * collects several scripts and runs them one after the other inside a single
+ * jruby process. each script has its own launch directory, output file,
+ * environment and exit status. the environment is the one of the script
+ * factory at the time the script got added. the first script which fails
+ * stops the batch.
+ *
+ * scripts which rely on at_exit hooks (like test/unit) need to run on
+ * their own since the hooks only run at the end of the whole batch.
+ */
+public class ScriptBatch {
+
+    private static final String BATCH_SCRIPT = "script_batch.rb";
+
+    private final ScriptFactory factory;
+
+    private final List<Entry>   entries  = new ArrayList<Entry>();
+
+    private final List<Integer> statuses = new ArrayList<Integer>();
+
+    private static class Entry {
+        final Script              script;
+        final File                launchDirectory;
+        final File                output;
+        final Map<String, String> env;
+
+        Entry(final Script script, final File launchDirectory,
+                final File output, final Map<String, String> env) {
+            this.script = script;
+            this.launchDirectory = launchDirectory;
+            this.output = output;
+            this.env = env;
+        }
+
+        @Override
+        public String toString() {
+            return this.script.toString();
+        }
+    }
+
+    ScriptBatch(final ScriptFactory factory) {
+        this.factory = factory;
+    }
+
+    public ScriptBatch add(final Script script) {
+        return add(script, null, null);
+    }
+
+    public ScriptBatch add(final Script script, final File launchDirectory) {
+        return add(script, launchDirectory, null);
+    }
+
+    public ScriptBatch add(final Script script, final File launchDirectory,
+            final File output) {
+        this.entries.add(new Entry(script,
+                launchDirectory,
+                output,
+                new HashMap<String, String>(this.factory.environment())));
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return this.entries.isEmpty();
+    }
+
+    /**
+     * @return the exit status of each script which ran during the last
+     *         execution.
+     */
+    public List<Integer> statuses() {
+        return Collections.unmodifiableList(this.statuses);
+    }
+
+    /**
+     * runs all the scripts and fails with the first script which fails.
+     * scripts which can not be batched, i.e. scripts with jruby switches,
+     * run with a process of their own.
+     */
+    public void execute() throws ScriptException, IOException {
+        this.statuses.clear();
+        final List<Entry> batch = new ArrayList<Entry>();
+        for (final Entry entry : this.entries) {
+            if (kind(entry.script) == null) {
+                executeBatch(batch);
+                batch.clear();
+                executeSingle(entry);
+            }
+            else {
+                batch.add(entry);
+            }
+        }
+        executeBatch(batch);
+    }
+
+    private void executeSingle(final Entry entry) throws ScriptException,
+            IOException {
+        try {
+            if (entry.launchDirectory == null) {
+                entry.script.execute(entry.output);
+            }
+            else {
+                entry.script.executeIn(entry.launchDirectory, entry.output);
+            }
+            this.statuses.add(0);
+        }
+        catch (final ScriptException e) {
+            this.statuses.add(1);
+            throw e;
+        }
+    }
+
+    private void executeBatch(final List<Entry> batch) throws ScriptException,
+            IOException {
+        if (batch.size() == 0) {
+            return;
+        }
+        if (batch.size() == 1) {
+            executeSingle(batch.get(0));
+            return;
+        }
+        final File statusFile = File.createTempFile("jruby-batch", ".status");
+        try {
+            final Script script = this.factory.newScriptFromResource(BATCH_SCRIPT);
+            script.addArg(statusFile);
+            for (final Entry entry : batch) {
+                final String kind = kind(entry.script);
+                script.addArg(path(entry.launchDirectory));
+                script.addArg(path(entry.output));
+                script.addArg(kind);
+                if ("e".equals(kind)) {
+                    script.addArg(entry.script.script);
+                }
+                else {
+                    script.addArg(entry.script.list.get(kind.equals("S")
+                            ? 1
+                            : 0));
+                }
+                script.addArg(Integer.toString(entry.env.size()));
+                for (final Map.Entry<String, String> env : entry.env.entrySet()) {
+                    script.addArg(env.getValue() == null
+                            ? env.getKey()
+                            : env.getKey() + "=" + env.getValue());
+                }
+                final List<String> args = arguments(entry.script, kind);
+                script.addArg(Integer.toString(args.size()));
+                for (final String arg : args) {
+                    script.addArg(arg);
+                }
+            }
+            try {
+                script.execute();
+            }
+            catch (final ScriptException e) {
+                final List<Integer> status = readStatuses(statusFile);
+                this.statuses.addAll(status);
+                if (status.size() > 0 && status.get(status.size() - 1) != 0) {
+                    throw new ScriptException("some error in script "
+                            + batch.get(status.size() - 1) + ": "
+                            + status.get(status.size() - 1), e);
+                }
+                throw e;
+            }
+            this.statuses.addAll(readStatuses(statusFile));
+        }
+        finally {
+            statusFile.delete();
+        }
+    }
+
+    /**
+     * @return the kind of script for the batch script or null if the script
+     *         can not be batched.
+     */
+    private static String kind(final Script script) {
+        if (script.script != null) {
+            return "e";
+        }
+        if (script.list.size() > 1 && script.list.get(0).equals("-S")) {
+            return "S";
+        }
+        if (script.list.size() > 0 && !script.list.get(0).startsWith("-")) {
+            return "f";
+        }
+        return null;
+    }
+
+    private static List<String> arguments(final Script script, final String kind) {
+        if ("e".equals(kind)) {
+            return script.list;
+        }
+        else if ("S".equals(kind)) {
+            return script.list.subList(2, script.list.size());
+        }
+        else {
+            return script.list.subList(1, script.list.size());
+        }
+    }
+
+    private static String path(final File file) {
+        return file == null ? "" : file.getAbsolutePath();
+    }
+
+    private static List<Integer> readStatuses(final File statusFile)
+            throws IOException {
+        final List<Integer> result = new ArrayList<Integer>();
+        if (!statusFile.exists()) {
+            return result;
+        }
+        final BufferedReader reader = new BufferedReader(new FileReader(statusFile));
+        try {
+            String line = reader.readLine();
+            while (line != null) {
+                if (line.trim().length() > 0) {
+                    result.add(Integer.parseInt(line.trim()));
+                }
+                line = reader.readLine();
+            }
+        }
+        catch (final NumberFormatException e) {
+            // keep what we got so far
+        }
+        finally {
+            reader.close();
+        }
+        return result;
+    }
+}
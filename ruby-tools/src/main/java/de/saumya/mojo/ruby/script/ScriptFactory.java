@@ -23,6 +23,10 @@ public class ScriptFactory {
 
     public static List<String> NO_CLASSPATH = Collections.emptyList();
 
+    // the worlds of the classworlds API are adapters which get created on
+    // each call, so they are no good as lock
+    private static final Object JRUBY_REALM = new Object();
+
     final Arguments            switches     = new Arguments();
     final Arguments            jvmArgs      = new Arguments();
     private final Map<String, String>  env          = new HashMap<String, String>();
@@ -32,7 +36,16 @@ public class ScriptFactory {
     final List<String>         classpathElements;
     final boolean              fork;
 
-    final Launcher             launcher;
+    Launcher                   launcher;
+
+    ClassDataSharing           classDataSharing;
+
+    MetricsReport              metrics;
+
+    File                       outputTee;
+
+    File                       cacheDirectory = new File(System.getProperty("java.io.tmpdir"),
+                                                       "jruby-maven-plugins");
 
     public ScriptFactory(final Logger logger, final ClassRealm classRealm,
             final File jrubyJar, final List<String> classpathElements,
@@ -44,21 +57,7 @@ public class ScriptFactory {
                 : Collections.unmodifiableList(classpathElements);
         this.fork = fork;
         if (classRealm != null) {
-            ClassRealm jruby;
-            try {
-                jruby = classRealm.getWorld().getRealm("jruby");
-            }
-            catch (final NoSuchRealmException e) {
-                try {
-                    jruby = classRealm.getWorld().newRealm("jruby");
-                    jruby.addConstituent(jrubyJar.toURI().toURL());
-                }
-                catch (final DuplicateRealmException ee) {
-                    throw new ScriptException("could not setup classrealm for jruby",
-                            ee);
-                }
-            }
-            this.classRealm = jruby;
+            this.classRealm = jrubyRealm(classRealm, jrubyJar);
         }
         else {
             this.classRealm = null;
@@ -73,6 +72,38 @@ public class ScriptFactory {
         }
     }
 
+    /**
+     * the realm with the jruby jar which is shared by the executions of
+     * parallel builds.
+     */
+    private static ClassRealm jrubyRealm(final ClassRealm classRealm,
+            final File jrubyJar) throws ScriptException, IOException {
+        synchronized (JRUBY_REALM) {
+            try {
+                return classRealm.getWorld().getRealm("jruby");
+            }
+            catch (final NoSuchRealmException e) {
+                try {
+                    final ClassRealm jruby = classRealm.getWorld()
+                            .newRealm("jruby");
+                    jruby.addConstituent(jrubyJar.toURI().toURL());
+                    return jruby;
+                }
+                catch (final DuplicateRealmException ee) {
+                    // created in the meantime by a plugin with its own
+                    // copy of this class
+                    try {
+                        return classRealm.getWorld().getRealm("jruby");
+                    }
+                    catch (final NoSuchRealmException eee) {
+                        throw new ScriptException("could not setup classrealm for jruby",
+                                ee);
+                    }
+                }
+            }
+        }
+    }
+
     public Script newScriptFromSearchPath(final String scriptName)
             throws IOException {
         return new Script(this, scriptName, true);
@@ -112,6 +143,91 @@ public class ScriptFactory {
         return new Script(this, file);
     }
 
+    /**
+     * @return a batch which runs several scripts inside one jruby process
+     */
+    public ScriptBatch newScriptBatch() {
+        return new ScriptBatch(this);
+    }
+
+    /**
+     * execute the scripts inside a long running jruby JVM which gets reused
+     * by the following executions with the same owner, jruby, classpath and
+     * jvm arguments. takes only effect when forking.
+     *
+     * @param owner
+     *            the workers belong to it, i.e. the maven session, and get
+     *            stopped by {@link #stopWorkers(Object)}. workers without
+     *            owner only stop when idle or when the JVM terminates.
+     */
+    public void useWorker(final Object owner) {
+        if (this.fork) {
+            this.launcher = new WorkerLauncher(this.logger, this, owner);
+        }
+    }
+
+    /**
+     * stops all the workers of the given owner.
+     */
+    public static void stopWorkers(final Object owner) {
+        Worker.stopAll(owner);
+    }
+
+    /**
+     * record timing and resource usage of each execution and append them to
+     * the given CSV file.
+     *
+     * @param label
+     *            goes with each line of the report, i.e. the project and the
+     *            mojo
+     */
+    public void useMetrics(final File report, final String label) {
+        this.metrics = new MetricsReport(report, label, this.logger);
+    }
+
+    /**
+     * append the output of all forked executions to the given file as well.
+     * the maven log might skip lines when a script produces output faster
+     * than it can be logged, the file gets all of them.
+     */
+    public void setOutputTee(final File outputTee) {
+        this.outputTee = outputTee;
+    }
+
+    /**
+     * directory for files which can be shared between builds like the
+     * pathing jars of the forked JVMs. default is inside java.io.tmpdir.
+     */
+    public void setCacheDirectory(final File cacheDirectory) {
+        this.cacheDirectory = cacheDirectory;
+    }
+
+    /**
+     * create and use class data sharing archives for the forked JVMs. the
+     * archives are kept inside the cache directory. takes only effect when
+     * forking with a JVM which supports dynamic archives (java 13+).
+     */
+    public void useClassDataSharing() {
+        useClassDataSharing(false);
+    }
+
+    /**
+     * like {@link #useClassDataSharing()}.
+     *
+     * @param report
+     *            measure the jruby startup with and without a newly created
+     *            archive, which launches some extra JVMs
+     */
+    public void useClassDataSharing(final boolean report) {
+        if (this.fork && ClassDataSharing.isSupported()) {
+            this.classDataSharing = new ClassDataSharing(this.logger,
+                    new File(this.cacheDirectory, "cds"), report);
+        }
+        else {
+            this.logger.debug("class data sharing needs forking and java 13 or newer");
+        }
+    }
+
     public void addJvmArgs(final String args) {
         this.jvmArgs.parseAndAdd(args);
     }
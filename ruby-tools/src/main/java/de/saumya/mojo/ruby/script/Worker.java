@@ -0,0 +1,318 @@
+/**
+ *
+ */
+package de.saumya.mojo.ruby.script;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import de.saumya.mojo.ruby.Logger;
+
+/**
+ * handle of a long running jruby JVM (see {@link WorkerMain}) which executes
+ * one script after the other. each worker belongs to an owner, i.e. the maven
+ * session, and is shared between all the mojo executions of that owner. the
+ * owner stops its workers via {@link #stopAll(Object)} when it ends. workers
+ * which outlive their owner stop themselves after being idle for
+ * {@link #IDLE_TIMEOUT} seconds or when the JVM of maven terminates.
+ */
+class Worker {
+
+    private static final int                                    IDLE_TIMEOUT = 600;
+
+    private static final Object                                 NO_OWNER     = new Object();
+
+    private static final Map<Object, Map<String, List<Worker>>> IDLE         = new IdentityHashMap<Object, Map<String, List<Worker>>>();
+
+    private static final List<Worker>                           ALL          = new LinkedList<Worker>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread("jruby-worker-shutdown") {
+            @Override
+            public void run() {
+                stopAll();
+            }
+        });
+    }
+
+    private final Object           owner;
+
+    private final String           key;
+
+    private final Process          process;
+
+    private final DataOutputStream requests;
+
+    private final DataInputStream  responses;
+
+    private boolean                broken;
+
+    // gets the stderr of the worker JVM, i.e. the logger of the current
+    // request or null while idle
+    private volatile Logger        errors;
+
+    private Worker(final Object owner, final String key, final Process process) {
+        this.owner = owner;
+        this.key = key;
+        this.process = process;
+        this.requests = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+        this.responses = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+    }
+
+    /**
+     * take an idle worker of the owner for the given command line or start a
+     * new one. the worker needs to be given back via {@link #release()}.
+     *
+     * @param owner
+     *            null for workers which only stop when idle or when maven
+     *            terminates
+     */
+    static Worker acquire(final Object owner, final List<String> command,
+            final Logger logger) throws IOException {
+        final Object realOwner = owner == null ? NO_OWNER : owner;
+        final String key = command.toString();
+        synchronized (IDLE) {
+            final Map<String, List<Worker>> idles = IDLE.get(realOwner);
+            final List<Worker> idle = idles == null ? null : idles.get(key);
+            while (idle != null && idle.size() > 0) {
+                final Worker worker = idle.remove(0);
+                if (worker.isAlive()) {
+                    worker.errors = logger;
+                    return worker;
+                }
+            }
+        }
+        logger.debug("start jruby worker: " + command);
+        final List<String> cmd = new ArrayList<String>(command);
+        cmd.add(Integer.toString(IDLE_TIMEOUT));
+        final Process process = new ProcessBuilder(cmd).start();
+        final Worker worker = new Worker(realOwner, key, process);
+        worker.errors = logger;
+        worker.pumpErrors();
+        synchronized (IDLE) {
+            ALL.add(worker);
+        }
+        // wait until the JVM is up
+        try {
+            if (worker.responses.readByte() != WorkerMain.READY) {
+                throw new IOException("unexpected response from jruby worker");
+            }
+        }
+        catch (final IOException e) {
+            worker.broken = true;
+            worker.release();
+            throw e;
+        }
+        return worker;
+    }
+
+    void release() {
+        this.errors = null;
+        synchronized (IDLE) {
+            if (!this.broken && isAlive() && ALL.contains(this)) {
+                Map<String, List<Worker>> idles = IDLE.get(this.owner);
+                if (idles == null) {
+                    idles = new HashMap<String, List<Worker>>();
+                    IDLE.put(this.owner, idles);
+                }
+                List<Worker> idle = idles.get(this.key);
+                if (idle == null) {
+                    idle = new LinkedList<Worker>();
+                    idles.put(this.key, idle);
+                }
+                idle.add(this);
+            }
+            else {
+                ALL.remove(this);
+                stop();
+            }
+        }
+    }
+
+    private boolean isAlive() {
+        try {
+            this.process.exitValue();
+            return false;
+        }
+        catch (final IllegalThreadStateException e) {
+            return true;
+        }
+    }
+
+    /**
+     * executes the arguments inside the worker and returns the exit status.
+     * the peak memory of the worker and the size of its output go into the
+     * metrics. all the output of the worker JVM goes to the given logger.
+     */
+    int execute(final File launchDirectory, final Map<String, String> env,
+            final List<String> args, final File outputFile,
+            final ExecutionMetrics metrics, final Logger logger)
+            throws IOException {
+        this.errors = logger;
+        // a failure in the protocol leaves the worker in an unknown state
+        this.broken = true;
+        WorkerMain.writeString(this.requests, path(launchDirectory));
+        WorkerMain.writeString(this.requests, path(outputFile));
+        this.requests.writeInt(env.size());
+        for (final Map.Entry<String, String> entry : env.entrySet()) {
+            WorkerMain.writeString(this.requests, entry.getKey());
+            WorkerMain.writeString(this.requests, entry.getValue());
+        }
+        this.requests.writeInt(args.size());
+        for (final String arg : args) {
+            WorkerMain.writeString(this.requests, arg);
+        }
+        this.requests.flush();
+
+        final LineBuffer out = new LineBuffer();
+        final LineBuffer err = new LineBuffer();
+        try {
+            while (true) {
+                final int type = this.responses.readByte();
+                if (type == WorkerMain.EXIT) {
+                    final int status = this.responses.readInt();
+                    metrics.peakRss = this.responses.readLong();
+                    this.broken = false;
+                    return status;
+                }
+                final byte[] bytes = new byte[this.responses.readInt()];
+                this.responses.readFully(bytes);
+                if (type == WorkerMain.OUT) {
+                    metrics.outputBytes += bytes.length;
+                    for (final String line : out.append(bytes)) {
+                        logger.info(line);
+                    }
+                }
+                else {
+                    for (final String line : err.append(bytes)) {
+                        logger.error(line);
+                    }
+                }
+            }
+        }
+        finally {
+            if (out.rest().length() > 0) {
+                logger.info(out.rest());
+            }
+            if (err.rest().length() > 0) {
+                logger.error(err.rest());
+            }
+        }
+    }
+
+    private void stop() {
+        try {
+            // the worker exits on EOF
+            this.requests.close();
+        }
+        catch (final IOException ignore) {
+        }
+        try {
+            Thread.sleep(100);
+        }
+        catch (final InterruptedException ignore) {
+        }
+        this.process.destroy();
+    }
+
+    static void stopAll() {
+        synchronized (IDLE) {
+            for (final Worker worker : ALL) {
+                worker.stop();
+            }
+            ALL.clear();
+            IDLE.clear();
+        }
+    }
+
+    /**
+     * stops the idle workers of the given owner. the busy ones stop when
+     * they get released.
+     */
+    static void stopAll(final Object owner) {
+        synchronized (IDLE) {
+            final Iterator<Worker> workers = ALL.iterator();
+            while (workers.hasNext()) {
+                final Worker worker = workers.next();
+                if (worker.owner == owner) {
+                    workers.remove();
+                }
+            }
+            final Map<String, List<Worker>> idles = IDLE.remove(owner);
+            if (idles != null) {
+                for (final List<Worker> idle : idles.values()) {
+                    for (final Worker worker : idle) {
+                        worker.stop();
+                    }
+                }
+            }
+        }
+    }
+
+    private static String path(final File file) {
+        return file == null ? null : file.getAbsolutePath();
+    }
+
+    private void pumpErrors() {
+        final Thread pump = new Thread("jruby-worker-stderr") {
+            @Override
+            public void run() {
+                final BufferedReader reader = new BufferedReader(new InputStreamReader(Worker.this.process.getErrorStream()));
+                try {
+                    String line = reader.readLine();
+                    while (line != null) {
+                        final Logger logger = Worker.this.errors;
+                        if (logger == null) {
+                            System.err.println(line);
+                        }
+                        else {
+                            logger.warn(line);
+                        }
+                        line = reader.readLine();
+                    }
+                }
+                catch (final IOException ignore) {
+                }
+            }
+        };
+        pump.setDaemon(true);
+        pump.start();
+    }
+
+    private static class LineBuffer {
+
+        private final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+
+        List<String> append(final byte[] bytes) throws IOException {
+            final List<String> lines = new ArrayList<String>();
+            for (final byte b : bytes) {
+                if (b == '\n') {
+                    lines.add(this.buf.toString("UTF-8"));
+                    this.buf.reset();
+                }
+                else {
+                    this.buf.write(b);
+                }
+            }
+            return lines;
+        }
+
+        String rest() throws IOException {
+            return this.buf.toString("UTF-8");
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/**
+ *
+ */
+package de.saumya.mojo.ruby.script;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import de.saumya.mojo.ruby.Logger;
+
+/**
+ * launcher which passes the scripts to a long running jruby JVM instead of
+ * forking a new JVM for each execution. there is one worker per owner, jruby
+ * jar, classpath and set of jvm arguments.
+ */
+class WorkerLauncher extends AbstractLauncher {
+
+    private static final String DEFAULT_XMX = "-Xmx384m";
+
+    private final Logger        logger;
+
+    private final ScriptFactory factory;
+
+    private final Object        owner;
+
+    WorkerLauncher(final Logger logger, final ScriptFactory factory,
+            final Object owner) {
+        this.logger = logger;
+        this.factory = factory;
+        this.owner = owner;
+    }
+
+    @Override
+    protected void doExecute(final File launchDirectory,
+            final List<String> args, final File outputFile)
+            throws ScriptException, IOException {
+        final List<String> arguments = new ArrayList<String>(this.factory.switches.list);
+        arguments.addAll(args);
+
+        final Map<String, String> env = this.factory.environment();
+        if (env.size() > 0) {
+            this.logger.debug("environment     :");
+            for (final Map.Entry<String, String> entry : env.entrySet()) {
+                this.logger.debug("\t\t" + entry.getKey() + " => "
+                        + entry.getValue());
+            }
+        }
+        this.logger.debug("args: " + arguments);
+
+        final ExecutionMetrics metrics = new ExecutionMetrics(ExecutionMetrics.WORKER,
+                launchDirectory,
+                args);
+        metrics.outputBytes = 0;
+        final Worker worker = Worker.acquire(this.owner,
+                                             command(),
+                                             this.logger);
+        metrics.started();
+        final OutputPump pump = new OutputPump(this.logger,
+                this.factory.outputTee);
+        int status = -1;
+        try {
+            status = worker.execute(launchDirectory,
+                                    env,
+                                    arguments,
+                                    outputFile,
+                                    metrics,
+                                    pump);
+        }
+        finally {
+            worker.release();
+            pump.close();
+            if (this.factory.metrics != null) {
+                metrics.finished(status);
+                if (outputFile != null) {
+                    metrics.output(outputFile);
+                }
+                this.factory.metrics.add(metrics);
+            }
+        }
+        if (status != 0) {
+            throw new ScriptException("some error in script " + arguments
+                    + ": " + status);
+        }
+    }
+
+    private List<String> command() throws ScriptException {
+        final List<String> command = new ArrayList<String>();
+        command.add(new File(new File(System.getProperty("java.home"), "bin"),
+                "java").getAbsolutePath());
+
+        if (!this.factory.jvmArgs.matches("(-client|-server)")) {
+            command.add("-client");
+        }
+        if (!this.factory.jvmArgs.matches("-Xmx\\d+m")) {
+            command.add(DEFAULT_XMX);
+        }
+        command.addAll(this.factory.jvmArgs.list);
+        command.add("-Xbootclasspath/a:"
+                + this.factory.jrubyJar.getAbsolutePath());
+
+        final List<String> elements = new ArrayList<String>();
+        for (final String path : this.factory.classpathElements) {
+            if (!path.contains("jruby-complete")) {
+                elements.add(path);
+            }
+        }
+        // the worker loads the classpath with a new classloader for each
+        // request, so it does not go onto the classpath of the JVM
+        final StringBuilder classPath = new StringBuilder();
+        if (elements.size() > 0) {
+            try {
+                classPath.append(PathingJar.create(this.factory.cacheDirectory,
+                                                   elements)
+                        .getAbsolutePath());
+            }
+            catch (final IOException e) {
+                this.logger.warn("could not create pathing jar: "
+                        + e.getMessage());
+                for (final String path : elements) {
+                    if (classPath.length() > 0) {
+                        classPath.append(File.pathSeparator);
+                    }
+                    classPath.append(path);
+                }
+            }
+        }
+        command.add("-cp");
+        command.add(workerLocation());
+        command.add(WorkerMain.class.getName());
+        command.add(classPath.toString());
+        return command;
+    }
+
+    private String workerLocation() throws ScriptException {
+        try {
+            return new File(WorkerMain.class.getProtectionDomain()
+                    .getCodeSource()
+                    .getLocation()
+                    .toURI()).getAbsolutePath();
+        }
+        catch (final URISyntaxException e) {
+            throw new ScriptException("can not locate jruby worker", e);
+        }
+    }
+
+    public void executeScript(final File launchDirectory, final String script,
+            final List<String> args, final File outputFile)
+            throws ScriptException, IOException {
+        args.add(0, "-e");
+        args.add(1, script);
+        args.add(2, "--");
+        doExecute(launchDirectory, args, outputFile);
+    }
+}
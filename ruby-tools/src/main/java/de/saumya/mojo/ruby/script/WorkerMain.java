@@ -0,0 +1,334 @@
+/**
+ *
+ */
+package de.saumya.mojo.ruby.script;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.jruby.Main;
+import org.jruby.RubyInstanceConfig;
+
+/**
+ * main class of a long running jruby JVM. it reads execution requests from
+ * stdin and runs each of them with a fresh ruby runtime and the
+ * current directory, environment, arguments and output file of the request.
+ * the output of the script and the exit status are written back to stdout.
+ * the classes of jruby stay loaded and warm between the requests.
+ *
+ * nothing else carries over from one request to the next: the classpath
+ * given as first argument gets loaded by a new classloader for each request
+ * and the system properties, System.out and the context classloader get
+ * reset after each request.
+ *
+ * the worker terminates when stdin gets closed or when it was idle longer
+ * then the timeout (in seconds) given as second argument.
+ */
+public class WorkerMain {
+
+    static final int        OUT   = 'O';
+    static final int        ERR   = 'E';
+    static final int        EXIT  = 'X';
+    static final int        READY = 'R';
+
+    private final DataOutputStream protocol;
+
+    private final PrintStream   stdout;
+
+    private final PrintStream   stderr;
+
+    private final URL[]         classpath;
+
+    private volatile long       lastUsed = System.currentTimeMillis();
+
+    WorkerMain(final OutputStream protocol, final String classpath)
+            throws IOException {
+        this.protocol = new DataOutputStream(new BufferedOutputStream(protocol));
+        final List<URL> urls = new ArrayList<URL>();
+        for (final String path : classpath.split(File.pathSeparator)) {
+            if (path.length() > 0) {
+                urls.add(new File(path).toURI().toURL());
+            }
+        }
+        this.classpath = urls.toArray(new URL[urls.size()]);
+        // everything which gets written directly to System.out or System.err
+        // gets wrapped into the protocol as well
+        this.stdout = new PrintStream(new FrameOutputStream(OUT), true);
+        this.stderr = new PrintStream(new FrameOutputStream(ERR), true);
+    }
+
+    public static void main(final String[] args) throws Exception {
+        final long timeout = args.length > 1 ? Long.parseLong(args[1]) * 1000 : 0;
+        final WorkerMain worker = new WorkerMain(System.out,
+                args.length > 0 ? args[0] : "");
+        System.setOut(worker.stdout);
+        System.setErr(worker.stderr);
+        System.setIn(new ByteArrayInputStream(new byte[0]));
+        if (timeout > 0) {
+            worker.watchIdle(timeout);
+        }
+        worker.ready();
+        worker.run(new DataInputStream(new BufferedInputStream(new FileInputStream(FileDescriptor.in))));
+        System.exit(0);
+    }
+
+    private void watchIdle(final long timeout) {
+        final Thread watchdog = new Thread("jruby-worker-watchdog") {
+            @Override
+            public void run() {
+                while (true) {
+                    try {
+                        Thread.sleep(1000);
+                    }
+                    catch (final InterruptedException e) {
+                        return;
+                    }
+                    if (System.currentTimeMillis() - WorkerMain.this.lastUsed > timeout) {
+                        System.exit(0);
+                    }
+                }
+            }
+        };
+        watchdog.setDaemon(true);
+        watchdog.start();
+    }
+
+    /**
+     * tells the parent that the JVM is up and jruby is loaded.
+     */
+    private void ready() throws IOException {
+        Main.class.getName();
+        synchronized (this.protocol) {
+            this.protocol.writeByte(READY);
+            this.protocol.flush();
+        }
+    }
+
+    void run(final DataInputStream in) throws IOException {
+        final Properties properties = (Properties) System.getProperties()
+                .clone();
+        final String userDir = System.getProperty("user.dir");
+        while (true) {
+            final String dir;
+            try {
+                dir = readString(in);
+            }
+            catch (final EOFException e) {
+                // parent closed the pipe
+                return;
+            }
+            final String output = readString(in);
+            final Map<String, String> env = new HashMap<String, String>(System.getenv());
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                final String key = readString(in);
+                final String value = readString(in);
+                if (value == null) {
+                    env.remove(key);
+                }
+                else {
+                    env.put(key, value);
+                }
+            }
+            size = in.readInt();
+            final String[] args = new String[size];
+            for (int i = 0; i < size; i++) {
+                args[i] = readString(in);
+            }
+
+            this.lastUsed = Long.MAX_VALUE;
+            final boolean measured = resetPeakRss();
+            final int status = execute(dir == null ? userDir : dir,
+                                       output,
+                                       env,
+                                       args);
+            // includes user.dir
+            System.setProperties((Properties) properties.clone());
+            synchronized (this.protocol) {
+                this.protocol.writeByte(EXIT);
+                this.protocol.writeInt(status);
+                this.protocol.writeLong(measured ? peakRss() : -1);
+                this.protocol.flush();
+            }
+            this.lastUsed = System.currentTimeMillis();
+        }
+    }
+
+    private int execute(final String dir, final String output,
+            final Map<String, String> env, final String[] args) {
+        PrintStream out = this.stdout;
+        final Thread thread = Thread.currentThread();
+        final ClassLoader contextLoader = thread.getContextClassLoader();
+        // the classes of the classpath are loaded for this request only
+        final ClassLoader loader = new URLClassLoader(this.classpath,
+                WorkerMain.class.getClassLoader().getParent());
+        try {
+            if (output != null) {
+                out = new PrintStream(new BufferedOutputStream(new FileOutputStream(output)));
+            }
+            System.setProperty("user.dir", dir);
+            final RubyInstanceConfig config = new RubyInstanceConfig();
+            config.setCurrentDirectory(dir);
+            config.setEnvironment(env);
+            config.setInput(new ByteArrayInputStream(new byte[0]));
+            config.setOutput(out);
+            config.setError(this.stderr);
+            config.setLoader(loader);
+            thread.setContextClassLoader(loader);
+            System.setOut(out);
+
+            // use reflection since the result type changed with jruby 1.5
+            final Method run = Main.class.getMethod("run", String[].class);
+            final Object result = run.invoke(new Main(config), (Object) args);
+            if (result instanceof Integer) {
+                return (Integer) result;
+            }
+            else {
+                final Method status = result.getClass().getMethod("getStatus");
+                return (Integer) status.invoke(result);
+            }
+        }
+        catch (final Throwable e) {
+            e.printStackTrace(this.stderr);
+            return 1;
+        }
+        finally {
+            thread.setContextClassLoader(contextLoader);
+            System.setOut(this.stdout);
+            if (out != this.stdout) {
+                out.close();
+            }
+            this.stdout.flush();
+            this.stderr.flush();
+        }
+    }
+
+    /**
+     * resets the peak resident set size, so it covers only the next request
+     * and not the whole lifetime of the worker.
+     *
+     * @return false if that is not possible, i.e. not on linux 4.0 or newer
+     */
+    private static boolean resetPeakRss() {
+        try {
+            final OutputStream out = new FileOutputStream("/proc/self/clear_refs");
+            try {
+                out.write('5');
+            }
+            finally {
+                out.close();
+            }
+            return true;
+        }
+        catch (final IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return the peak resident set size of this JVM in kB since the last
+     *         {@link #resetPeakRss()} or -1 if it is not available
+     */
+    private static long peakRss() {
+        try {
+            final BufferedReader reader = new BufferedReader(new FileReader("/proc/self/status"));
+            try {
+                String line = reader.readLine();
+                while (line != null) {
+                    if (line.startsWith("VmHWM:")) {
+                        return Long.parseLong(line.substring(6)
+                                .replace("kB", "")
+                                .trim());
+                    }
+                    line = reader.readLine();
+                }
+            }
+            finally {
+                reader.close();
+            }
+        }
+        catch (final IOException e) {
+            // not available
+        }
+        catch (final NumberFormatException e) {
+            // not available
+        }
+        return -1;
+    }
+
+    static String readString(final DataInputStream in) throws IOException {
+        final int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+    static void writeString(final DataOutputStream out, final String value)
+            throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        }
+        else {
+            final byte[] bytes = value.getBytes("UTF-8");
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private class FrameOutputStream extends OutputStream {
+
+        private final int type;
+
+        FrameOutputStream(final int type) {
+            this.type = type;
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len)
+                throws IOException {
+            if (len > 0) {
+                synchronized (WorkerMain.this.protocol) {
+                    WorkerMain.this.protocol.writeByte(this.type);
+                    WorkerMain.this.protocol.writeInt(len);
+                    WorkerMain.this.protocol.write(b, off, len);
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            synchronized (WorkerMain.this.protocol) {
+                WorkerMain.this.protocol.flush();
+            }
+        }
+    }
+}
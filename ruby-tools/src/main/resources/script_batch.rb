@@ -0,0 +1,76 @@
+# runs several scripts one after the other inside the same jruby runtime.
+# see de.saumya.mojo.ruby.script.ScriptBatch
+#
+# arguments: the status file followed by the scripts, each given as
+#   directory, output file, kind, code, number of env entries, env entries,
+#   number of arguments, arguments
+# where kind is 'e' (ruby code), 'S' (script from the search path) or
+# 'f' (script file). an env entry is KEY=VALUE or just KEY to remove the
+# variable. the exit status of each script gets appended to the status file.
+# the first failing script stops the batch.
+require 'rbconfig'
+
+def find_script(name)
+  ([RbConfig::CONFIG['bindir']] + ENV['PATH'].to_s.split(File::PATH_SEPARATOR)).each do |dir|
+    file = File.join(dir, name)
+    return file if File.exists?(file)
+  end
+  raise LoadError, "no such file to load -- #{name}"
+end
+
+status_file = ARGV.shift
+args = ARGV.dup
+ARGV.clear
+
+File.open(status_file, 'w') do |statuses|
+  until args.empty?
+    dir, output, kind, code = args.slice!(0, 4)
+    env = args.slice!(0, args.shift.to_i)
+    argv = args.slice!(0, args.shift.to_i)
+
+    status = 0
+    stdout = $stdout
+    pwd = Dir.pwd
+    old_env = {}
+    begin
+      env.each do |entry|
+        key, value = entry.split('=', 2)
+        old_env[key] = ENV[key]
+        ENV[key] = value
+      end
+      Gem.clear_paths if defined?(Gem) && Gem.respond_to?(:clear_paths)
+      Dir.chdir(dir) unless dir.empty?
+      $stdout = File.open(output, 'w') unless output.empty?
+      ARGV.replace(argv)
+      case kind
+      when 'e'
+        $0 = '-e'
+        eval(code, TOPLEVEL_BINDING, '-e')
+      when 'S'
+        $0 = find_script(code)
+        load($0)
+      else
+        $0 = code
+        load(code)
+      end
+    rescue SystemExit => e
+      status = e.status
+    rescue Exception => e
+      $stderr.puts "#{e.class}: #{e.message}"
+      $stderr.puts e.backtrace.join("\n") if e.backtrace
+      status = 1
+    ensure
+      unless $stdout == stdout
+        $stdout.close unless $stdout.closed?
+        $stdout = stdout
+      end
+      Dir.chdir(pwd)
+      old_env.each do |key, value|
+        ENV[key] = value
+      end
+    end
+    statuses.puts status
+    statuses.flush
+    exit(status) if status != 0
+  end
+end
@@ -1,6 +1,7 @@
 package de.saumya.mojo.gems;
 
 import java.io.IOException;
+import java.util.Random;
 
 import junit.framework.TestCase;
 
@@ -67,6 +68,50 @@ public class Maven2GemVersionConverterTest extends TestCase
         }
     }
 
+    public void testSameAsLegacy()
+        throws IOException
+    {
+        LegacyMaven2GemVersionConverter legacy = new LegacyMaven2GemVersionConverter();
+        String[] versions =
+            IOUtil.toString( Thread.currentThread().getContextClassLoader().getResourceAsStream( "versions.txt" ) )
+                .split( "\\s" );
+        for ( String version : versions )
+        {
+            assertEquals( version, legacy.createGemVersion( version ), converter.createGemVersion( version ) );
+        }
+
+        // the odd ones
+        String chars = "0123456789.-_abcglmprsABCRT+~";
+        Random random = new Random( 42 );
+        for ( int i = 0; i < 100000; i++ )
+        {
+            StringBuilder version = new StringBuilder();
+            for ( int j = random.nextInt( 12 ) + 1; j > 0; j-- )
+            {
+                version.append( chars.charAt( random.nextInt( chars.length() ) ) );
+            }
+            assertEquals( version.toString(), legacy.createGemVersion( version.toString() ),
+                converter.createGemVersion( version.toString() ) );
+        }
+        for ( String version : new String[] { "1.0-crc", "1.0-alphabetalpha", "1.0-srcp", "1--2", "1---2", "1.0-_-b",
+            "1.0.final", "1.0-milestone1", "1.0-sp1", "1.0-gamma" } )
+        {
+            assertEquals( version, legacy.createGemVersion( version ), converter.createGemVersion( version ) );
+        }
+    }
+
+    public void testCache()
+    {
+        converter = new Maven2GemVersionConverter( 2 );
+        for ( int i = 0; i < 3; i++ )
+        {
+            check( "1.2-SNAPSHOT", "1.2.0.snapshot", false );
+            check( "2.3.3-RC1", "2.3.3.r.1", false );
+            check( "3.0-alpha-1.20020912.045138", "3.0.0.a.1.20020912.045138", false );
+            check( "1.2.3", "1.2.3", true );
+        }
+    }
+
     // ==
 
     protected void check( String mavenVersion, String expectedVersion, boolean inputIsProperGemVersion )
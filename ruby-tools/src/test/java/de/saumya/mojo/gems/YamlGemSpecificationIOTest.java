@@ -0,0 +1,98 @@
+package de.saumya.mojo.gems;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.codehaus.plexus.util.FileUtils;
+
+import de.saumya.mojo.gems.spec.GemSpecification;
+import de.saumya.mojo.gems.spec.yaml.YamlGemSpecificationIO;
+
+public class YamlGemSpecificationIOTest extends TestCase {
+
+    private final YamlGemSpecificationIO io = new YamlGemSpecificationIO();
+
+    private GemSpecification read(final String name) throws Exception {
+        final InputStream in = new FileInputStream(new File("src/test/resources/"
+                + name));
+        try {
+            return this.io.read(in);
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    private GemSpecification roundTrip(final GemSpecification gemspec)
+            throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        this.io.write(gemspec, out);
+        return this.io.read(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    public void testStreamRoundTrip() throws Exception {
+        final GemSpecification gemspec = read("metadata-prawn");
+        assertEquals("prawn", gemspec.getName());
+
+        final GemSpecification copy = roundTrip(gemspec);
+        assertEquals(gemspec.getName(), copy.getName());
+        assertEquals(gemspec.getVersion().getVersion(),
+                     copy.getVersion().getVersion());
+        assertEquals(gemspec.getFiles(), copy.getFiles());
+        assertEquals(gemspec.getDependencies().size(),
+                     copy.getDependencies().size());
+        // streams and strings give the same yaml
+        assertEquals(this.io.write(gemspec), this.io.write(copy));
+        assertEquals(this.io.write(gemspec),
+                     this.io.write(this.io.read(FileUtils.fileRead("src/test/resources/metadata-prawn"))));
+    }
+
+    public void testNonAsciiText() throws Exception {
+        final GemSpecification gemspec = read("metadata-prawn");
+        gemspec.setSummary("gr\u00fc\u00dfe \u2603");
+        assertEquals("gr\u00fc\u00dfe \u2603", roundTrip(gemspec).getSummary());
+    }
+
+    public void testManyThreads() throws Exception {
+        final String[] names = { "metadata-prawn", "metadata-a2ws" };
+        final String[] expected = new String[names.length];
+        for (int i = 0; i < names.length; i++) {
+            expected[i] = this.io.write(read(names[i]));
+        }
+
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+        final Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            final int index = i % names.length;
+            threads[i] = new Thread() {
+
+                @Override
+                public void run() {
+                    try {
+                        for (int j = 0; j < 20; j++) {
+                            final GemSpecification gemspec = roundTrip(read(names[index]));
+                            assertEquals(expected[index],
+                                         YamlGemSpecificationIOTest.this.io.write(gemspec));
+                        }
+                    }
+                    catch (final Throwable e) {
+                        errors.add(e);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(errors.toString(), 0, errors.size());
+    }
+}
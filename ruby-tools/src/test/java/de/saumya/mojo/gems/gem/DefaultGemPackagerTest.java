@@ -0,0 +1,130 @@
+package de.saumya.mojo.gems.gem;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import junit.framework.TestCase;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
+
+import de.saumya.mojo.gems.spec.GemSpecification;
+import de.saumya.mojo.gems.spec.GemSpecificationIO;
+import de.saumya.mojo.gems.spec.GemVersion;
+import de.saumya.mojo.ruby.Digests;
+
+public class DefaultGemPackagerTest
+    extends TestCase
+{
+    private File base;
+
+    private Gem gem;
+
+    private DefaultGemPackager packager;
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        base = new File( "target/default-gem-packager" ).getAbsoluteFile();
+        FileUtils.deleteDirectory( base );
+        final File hello = new File( base, "hello.rb" );
+        hello.getParentFile().mkdirs();
+        FileUtils.fileWrite( hello.getPath(), "puts 'hello'\n" );
+
+        final GemSpecification spec = new GemSpecification();
+        spec.setName( "hello" );
+        spec.setVersion( new GemVersion( "1.0.0" ) );
+        gem = new Gem( spec );
+        gem.addFile( hello, "lib/hello.rb" );
+
+        packager = new DefaultGemPackager( new GemSpecificationIO()
+        {
+            public GemSpecification read( final String string )
+            {
+                throw new UnsupportedOperationException();
+            }
+
+            public String write( final GemSpecification gemspec )
+            {
+                return "--- " + gemspec.getName() + "\n";
+            }
+
+            public GemSpecification read( final InputStream in )
+            {
+                throw new UnsupportedOperationException();
+            }
+
+            public void write( final GemSpecification gemspec, final OutputStream out )
+                throws IOException
+            {
+                out.write( write( gemspec ).getBytes( "UTF-8" ) );
+            }
+        } );
+    }
+
+    public void testEntries()
+        throws Exception
+    {
+        final File gemFile = packager.createGem( gem, new File( base, "pkg" ) );
+        assertEquals( "hello-1.0.0.gem", gemFile.getName() );
+
+        final Map<String, TarWriterTest.Entry> entries = TarWriterTest.read( new FileInputStream( gemFile ) );
+        assertEquals( "[data.tar.gz, metadata.gz, checksums.yaml.gz]", entries.keySet().toString() );
+        assertEquals( "--- hello\n", gunzip( entries.get( "metadata.gz" ).content ) );
+
+        final String checksums = gunzip( entries.get( "checksums.yaml.gz" ).content );
+        for ( final String entry : new String[] { "metadata.gz", "data.tar.gz" } )
+        {
+            final byte[] content = entries.get( entry ).content;
+            assertTrue( checksums, checksums.contains( "  " + entry + ": "
+                + Digests.hex( Digests.sha1().digest( content ) ) + "\n" ) );
+            assertTrue( checksums, checksums.contains( "  " + entry + ": "
+                + Digests.hex( Digests.digest( "SHA-256" ).digest( content ) ) + "\n" ) );
+        }
+    }
+
+    public void testChecksumFiles()
+        throws Exception
+    {
+        gem.setChecksumFiles( true );
+        final File gemFile = packager.createGem( gem, new File( base, "pkg" ) );
+
+        assertEquals( Digests.sha1( gemFile ), FileUtils.fileRead( gemFile.getPath() + ".sha1" ) );
+        final InputStream in = new FileInputStream( gemFile );
+        final byte[] bytes = IOUtil.toByteArray( in );
+        in.close();
+        assertEquals( Digests.hex( Digests.digest( "SHA-256" ).digest( bytes ) ),
+                      FileUtils.fileRead( gemFile.getPath() + ".sha256" ) );
+    }
+
+    public void testNoChecksumFiles()
+        throws Exception
+    {
+        final File gemFile = packager.createGem( gem, new File( base, "pkg" ) );
+
+        assertTrue( gemFile.isFile() );
+        assertFalse( new File( gemFile.getPath() + ".sha1" ).exists() );
+        assertFalse( new File( gemFile.getPath() + ".sha256" ).exists() );
+    }
+
+    private static String gunzip( final byte[] gz )
+        throws IOException
+    {
+        final InputStream in = new GZIPInputStream( new ByteArrayInputStream( gz ) );
+        try
+        {
+            return IOUtil.toString( in, "UTF-8" );
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package de.saumya.mojo.gems.gem;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+
+import junit.framework.TestCase;
+
+import org.codehaus.plexus.util.IOUtil;
+
+public class ParallelGZIPOutputStreamTest
+    extends TestCase
+{
+    private static final int BLOCK = ParallelGZIPOutputStream.BLOCK;
+
+    private static final int[] SIZES = { 0, 1, BLOCK - 1, BLOCK, BLOCK + 1, 5 * BLOCK + 17 };
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        assertTrue( "needs java 7 or newer", ParallelGZIPOutputStream.isSupported() );
+    }
+
+    public void testRoundTripStored()
+        throws Exception
+    {
+        for ( final int size : SIZES )
+        {
+            assertRoundTrip( input( size ), 0 );
+        }
+    }
+
+    public void testRoundTripBest()
+        throws Exception
+    {
+        for ( final int size : SIZES )
+        {
+            assertRoundTrip( input( size ), 9 );
+        }
+    }
+
+    public void testSingleBytes()
+        throws Exception
+    {
+        final byte[] input = input( BLOCK + 3 );
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final ParallelGZIPOutputStream gzip = new ParallelGZIPOutputStream( bytes, 6 );
+        for ( final byte b : input )
+        {
+            gzip.write( b );
+        }
+        gzip.close();
+        assertTrailer( input, bytes.toByteArray() );
+        assertTrue( Arrays.equals( input, gunzip( bytes.toByteArray() ) ) );
+    }
+
+    private void assertRoundTrip( final byte[] input, final int level )
+        throws IOException
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final ParallelGZIPOutputStream gzip = new ParallelGZIPOutputStream( bytes, level );
+        // odd chunks which do not line up with the blocks
+        int off = 0;
+        while ( off < input.length )
+        {
+            final int n = Math.min( 1000, input.length - off );
+            gzip.write( input, off, n );
+            off += n;
+        }
+        gzip.close();
+
+        final byte[] gz = bytes.toByteArray();
+        assertTrailer( input, gz );
+        assertTrue( "size " + input.length + " level " + level, Arrays.equals( input, gunzip( gz ) ) );
+    }
+
+    /**
+     * the combined CRC32 and ISIZE, both little endian, end the gzip member.
+     */
+    private void assertTrailer( final byte[] input, final byte[] gz )
+    {
+        final CRC32 crc = new CRC32();
+        crc.update( input );
+        assertEquals( crc.getValue(), uint32( gz, gz.length - 8 ) );
+        assertEquals( input.length, uint32( gz, gz.length - 4 ) );
+    }
+
+    private static long uint32( final byte[] bytes, final int offset )
+    {
+        return ( bytes[offset] & 0xffL ) | ( bytes[offset + 1] & 0xffL ) << 8 | ( bytes[offset + 2] & 0xffL ) << 16
+            | ( bytes[offset + 3] & 0xffL ) << 24;
+    }
+
+    private static byte[] gunzip( final byte[] gz )
+        throws IOException
+    {
+        final GZIPInputStream in = new GZIPInputStream( new ByteArrayInputStream( gz ) );
+        try
+        {
+            return IOUtil.toByteArray( in );
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * text like content with some noise, so the blocks refer to each other
+     * and still do not compress to nothing.
+     */
+    private static byte[] input( final int size )
+    {
+        final Random random = new Random( size );
+        final byte[] words = "require 'hello' puts world def end class module ".getBytes();
+        final byte[] input = new byte[size];
+        for ( int i = 0; i < size; i++ )
+        {
+            input[i] = random.nextInt( 10 ) == 0 ? (byte) random.nextInt( 256 ) : words[random.nextInt( words.length )];
+        }
+        return input;
+    }
+}
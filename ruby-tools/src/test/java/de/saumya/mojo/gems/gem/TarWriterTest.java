@@ -0,0 +1,213 @@
+package de.saumya.mojo.gems.gem;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import junit.framework.TestCase;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
+
+public class TarWriterTest
+    extends TestCase
+{
+    private static final String LONG_NAME = "lib/hello/"
+        + "very_long_directory_name_which_does_not_fit_into_the_name_field/"
+        + "of_a_tar_header_and_needs_a_long_link_entry.rb";
+
+    private File gem;
+
+    static class Entry
+    {
+        String name;
+
+        int mode;
+
+        char type;
+
+        byte[] content;
+    }
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        final File base = new File( "target/tar-writer" ).getAbsoluteFile();
+        FileUtils.deleteDirectory( base );
+        base.mkdirs();
+        final File hello = new File( base, "hello.rb" );
+        FileUtils.fileWrite( hello.getPath(), "puts 'hello'\n" );
+        final File script = new File( base, "hello" );
+        FileUtils.fileWrite( script.getPath(), "#!/usr/bin/env jruby\n" );
+        // java 6 API
+        File.class.getMethod( "setExecutable", boolean.class ).invoke( script, true );
+
+        // the same layout as the DefaultGemPackager writes
+        gem = new File( base, "hello-1.0.0.gem" );
+        final DefaultGemPackager.Spool dataTarGz = new DefaultGemPackager.Spool();
+        final OutputStream gzip = new DefaultGemPackager.LeveledGZIPOutputStream( dataTarGz, 9 );
+        final TarWriter data = new TarWriter( gzip );
+        data.add( "lib/hello.rb", hello );
+        data.add( LONG_NAME, hello );
+        data.add( "bin/hello", script );
+        data.finish();
+        gzip.close();
+        final OutputStream out = new FileOutputStream( gem );
+        final TarWriter tar = new TarWriter( out );
+        tar.add( "data.tar.gz", dataTarGz.buffer(), dataTarGz.size() );
+        tar.add( "metadata.gz", "--- hello".getBytes( "UTF-8" ) );
+        tar.finish();
+        out.close();
+    }
+
+    public void testOuterEntries()
+        throws Exception
+    {
+        final Map<String, Entry> entries = read( new FileInputStream( gem ) );
+        assertEquals( "[data.tar.gz, metadata.gz]", entries.keySet().toString() );
+        assertEquals( "--- hello", new String( entries.get( "metadata.gz" ).content, "UTF-8" ) );
+        assertEquals( 0644, entries.get( "metadata.gz" ).mode );
+        assertTrue( entries.get( "data.tar.gz" ).content.length > 0 );
+        assertEquals( 0644, entries.get( "data.tar.gz" ).mode );
+        assertEquals( 0, gem.length() % 512 );
+    }
+
+    public void testDataEntries()
+        throws Exception
+    {
+        final Map<String, Entry> entries = read( data() );
+        assertEquals( "[lib/hello.rb, " + LONG_NAME + ", bin/hello]", entries.keySet().toString() );
+
+        assertEquals( "puts 'hello'\n", new String( entries.get( "lib/hello.rb" ).content, "UTF-8" ) );
+        assertEquals( 0644, entries.get( "lib/hello.rb" ).mode );
+
+        assertEquals( "puts 'hello'\n", new String( entries.get( LONG_NAME ).content, "UTF-8" ) );
+        assertEquals( 0644, entries.get( LONG_NAME ).mode );
+
+        assertEquals( "#!/usr/bin/env jruby\n", new String( entries.get( "bin/hello" ).content, "UTF-8" ) );
+        assertEquals( 0755, entries.get( "bin/hello" ).mode );
+    }
+
+    public void testLongLink()
+        throws Exception
+    {
+        final List<Entry> entries = entries( data() );
+        assertEquals( 4, entries.size() );
+        assertEquals( '0', entries.get( 0 ).type );
+        assertEquals( "././@LongLink", entries.get( 1 ).name );
+        assertEquals( 'L', entries.get( 1 ).type );
+        assertEquals( LONG_NAME + "\0", new String( entries.get( 1 ).content, "UTF-8" ) );
+        // the name field holds the first 100 bytes of the long name
+        assertEquals( LONG_NAME.substring( 0, 100 ), entries.get( 2 ).name );
+        assertEquals( '0', entries.get( 2 ).type );
+        assertEquals( "puts 'hello'\n".length(), entries.get( 2 ).content.length );
+    }
+
+    private InputStream data()
+        throws IOException
+    {
+        final byte[] dataTarGz = read( new FileInputStream( gem ) ).get( "data.tar.gz" ).content;
+        return new GZIPInputStream( new ByteArrayInputStream( dataTarGz ) );
+    }
+
+    /**
+     * the entries by name with the long names resolved.
+     */
+    static Map<String, Entry> read( final InputStream in )
+        throws IOException
+    {
+        final Map<String, Entry> result = new LinkedHashMap<String, Entry>();
+        String longName = null;
+        for ( final Entry entry : entries( in ) )
+        {
+            if ( entry.type == 'L' )
+            {
+                longName = new String( entry.content, 0, entry.content.length - 1, "UTF-8" );
+            }
+            else
+            {
+                if ( longName != null )
+                {
+                    entry.name = longName;
+                    longName = null;
+                }
+                result.put( entry.name, entry );
+            }
+        }
+        return result;
+    }
+
+    /**
+     * the raw entries of a tar archive.
+     */
+    static List<Entry> entries( final InputStream in )
+        throws IOException
+    {
+        final List<Entry> result = new ArrayList<Entry>();
+        final DataInputStream data = new DataInputStream( in );
+        try
+        {
+            final byte[] header = new byte[512];
+            while ( true )
+            {
+                data.readFully( header );
+                if ( header[0] == 0 )
+                {
+                    // end of archive
+                    return result;
+                }
+                assertChecksum( header );
+                final Entry entry = new Entry();
+                entry.name = string( header, 0, 100 );
+                entry.mode = (int) Long.parseLong( string( header, 100, 8 ), 8 );
+                entry.type = (char) header[156];
+                entry.content = new byte[(int) Long.parseLong( string( header, 124, 12 ), 8 )];
+                data.readFully( entry.content );
+                data.readFully( new byte[( 512 - entry.content.length % 512 ) % 512] );
+                result.add( entry );
+            }
+        }
+        catch ( final EOFException e )
+        {
+            throw new IOException( "missing end of archive" );
+        }
+        finally
+        {
+            IOUtil.close( data );
+        }
+    }
+
+    private static void assertChecksum( final byte[] header )
+        throws IOException
+    {
+        long checksum = 0;
+        for ( int i = 0; i < header.length; i++ )
+        {
+            checksum += i >= 148 && i < 156 ? ' ' : header[i] & 0xff;
+        }
+        assertEquals( checksum, Long.parseLong( string( header, 148, 8 ).trim(), 8 ) );
+    }
+
+    private static String string( final byte[] header, final int offset, final int length )
+        throws IOException
+    {
+        int end = offset;
+        while ( end < offset + length && header[end] != 0 )
+        {
+            end++;
+        }
+        return new String( header, offset, end - offset, "UTF-8" );
+    }
+}
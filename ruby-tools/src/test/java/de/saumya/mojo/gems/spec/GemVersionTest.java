@@ -0,0 +1,53 @@
+package de.saumya.mojo.gems.spec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class GemVersionTest extends TestCase
+{
+    public void testNumeric()
+    {
+        assertOrder( "1.9.0", "1.10.0" );
+        assertOrder( "1.2", "1.2.1" );
+        assertOrder( "0.9", "1" );
+        assertOrder( "2.3.2", "2.3.10" );
+        assertEqual( "1", "1.0.0" );
+        assertEqual( "1.0", "1" );
+    }
+
+    public void testPrerelease()
+    {
+        assertOrder( "1.0.a", "1.0" );
+        assertOrder( "1.0.a", "1.0.b" );
+        assertOrder( "1.0.a1", "1.0.a2" );
+        assertOrder( "1.0.rc1", "1.0.0" );
+        assertOrder( "1.0.rc1", "1.0.rc2" );
+        assertOrder( "1.0.beta.2", "1.0.beta.10" );
+        assertOrder( "0.9", "1.0.a" );
+        assertOrder( "1.0-1", "1.0" );
+        assertEqual( "1.0.a.0", "1.0.a" );
+        assertEqual( "1.0.0.a", "1.0.a" );
+    }
+
+    public void testSort()
+    {
+        List<String> versions = new ArrayList<String>( Arrays.asList( "1.10.0", "1.9.0", "2.0.0.rc1", "1.9.0.pre",
+                                                                      "2.0.0", "1.2" ) );
+        GemVersion.sort( versions );
+        assertEquals( Arrays.asList( "1.2", "1.9.0.pre", "1.9.0", "1.10.0", "2.0.0.rc1", "2.0.0" ), versions );
+    }
+
+    private void assertOrder( String lower, String higher )
+    {
+        assertTrue( lower + " < " + higher, new GemVersion( lower ).compareTo( new GemVersion( higher ) ) < 0 );
+        assertTrue( higher + " > " + lower, new GemVersion( higher ).compareTo( new GemVersion( lower ) ) > 0 );
+    }
+
+    private void assertEqual( String left, String right )
+    {
+        assertEquals( left + " == " + right, 0, new GemVersion( left ).compareTo( new GemVersion( right ) ) );
+    }
+}
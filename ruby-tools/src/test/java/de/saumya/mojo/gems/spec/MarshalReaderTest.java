@@ -0,0 +1,63 @@
+package de.saumya.mojo.gems.spec;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class MarshalReaderTest
+    extends TestCase
+{
+    // [ [ "abc" ], <link> ] with the link as last byte
+    private static byte[] marshal( int link )
+    {
+        return new byte[] { 4, 8, '[', 7, '[', 6, '"', 8, 'a', 'b', 'c', '@', (byte) ( link + 5 ) };
+    }
+
+    private List<Object> read( byte[] marshal )
+        throws IOException
+    {
+        final List<Object> elements = new ArrayList<Object>();
+        new MarshalReader( new ByteArrayInputStream( marshal ) ).readArray( new MarshalReader.ElementHandler()
+        {
+            public void element( Object element )
+            {
+                elements.add( element );
+            }
+        } );
+        return elements;
+    }
+
+    public void testLinkToString()
+        throws Exception
+    {
+        List<Object> elements = read( marshal( 2 ) );
+        assertEquals( Arrays.asList( Arrays.asList( "abc" ), "abc" ), elements );
+        assertSame( ( (List<?>) elements.get( 0 ) ).get( 0 ), elements.get( 1 ) );
+    }
+
+    public void testLinkToElement()
+        throws Exception
+    {
+        try
+        {
+            read( marshal( 1 ) );
+            fail( "the elements are not kept" );
+        }
+        catch ( IOException e )
+        {
+            assertTrue( e.getMessage().contains( "link" ) );
+        }
+    }
+
+    public void testLinkToArrayWithoutStreaming()
+        throws Exception
+    {
+        List<?> array = (List<?>) new MarshalReader( new ByteArrayInputStream( marshal( 1 ) ) ).read();
+        assertEquals( 2, array.size() );
+        assertSame( array.get( 0 ), array.get( 1 ) );
+    }
+}
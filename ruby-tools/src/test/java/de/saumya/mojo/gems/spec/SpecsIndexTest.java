@@ -0,0 +1,149 @@
+package de.saumya.mojo.gems.spec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class SpecsIndexTest extends TestCase
+{
+    private SpecsIndex index;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        Marshal marshal = new Marshal( 6 );
+        marshal.spec( "rake", "0.9.2", "ruby" );
+        marshal.spec( "rake", "0.10.0", "ruby" );
+        marshal.spec( "jruby-openssl", "0.7.4", "ruby" );
+        marshal.spec( "rake", "0.9.2.rc1", "ruby" );
+        marshal.spec( "nokogiri", "1.5.0", "ruby" );
+        marshal.spec( "nokogiri", "1.5.0", "java" );
+        index = SpecsIndex.read( new ByteArrayInputStream( marshal.toByteArray() ) );
+    }
+
+    public void testSize()
+    {
+        assertEquals( 6, index.size() );
+        assertEquals( Arrays.asList( "jruby-openssl", "nokogiri", "rake" ), index.names() );
+    }
+
+    public void testVersions()
+    {
+        assertEquals( Arrays.asList( "0.9.2.rc1", "0.9.2", "0.10.0" ), index.versions( "rake" ) );
+        assertEquals( Arrays.asList( "1.5.0" ), index.versions( "nokogiri" ) );
+        assertEquals( Arrays.asList( "1.5.0" ), index.versions( "nokogiri", "java" ) );
+        assertEquals( Collections.emptyList(), index.versions( "rake", "java" ) );
+        assertEquals( Collections.emptyList(), index.versions( "rails" ) );
+        assertEquals( "0.10.0", index.latestVersion( "rake" ) );
+        assertNull( index.latestVersion( "rails" ) );
+    }
+
+    public void testPlatforms()
+    {
+        assertTrue( index.hasPlatform( "nokogiri", "1.5.0", "java" ) );
+        assertTrue( index.hasPlatform( "nokogiri", null, "ruby" ) );
+        assertFalse( index.hasPlatform( "nokogiri", "1.4.0", "java" ) );
+        assertTrue( index.hasJavaPlatform( "nokogiri", null ) );
+        assertFalse( index.hasJavaPlatform( "rake", null ) );
+    }
+
+    /**
+     * writes marshal data the way ruby 1.9 writes the spec indexes: strings
+     * with an encoding, symbols and repeated strings as links.
+     */
+    static class Marshal
+    {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        private final List<String> symbols = new ArrayList<String>();
+
+        private final List<String> objects = new ArrayList<String>();
+
+        Marshal( int size )
+        {
+            out.write( 4 );
+            out.write( 8 );
+            out.write( '[' );
+            fixnum( size );
+            objects.add( null );
+        }
+
+        void spec( String name, String version, String platform )
+        {
+            out.write( '[' );
+            objects.add( null );
+            fixnum( 3 );
+            string( name );
+            out.write( 'U' );
+            symbol( "Gem::Version" );
+            objects.add( null );
+            out.write( '[' );
+            objects.add( null );
+            fixnum( 1 );
+            string( version );
+            string( platform );
+        }
+
+        byte[] toByteArray()
+        {
+            return out.toByteArray();
+        }
+
+        private void string( String string )
+        {
+            int link = objects.indexOf( string );
+            if ( link >= 0 )
+            {
+                out.write( '@' );
+                fixnum( link );
+                return;
+            }
+            objects.add( string );
+            out.write( 'I' );
+            out.write( '"' );
+            fixnum( string.length() );
+            out.write( string.getBytes(), 0, string.length() );
+            fixnum( 1 );
+            symbol( "E" );
+            out.write( 'T' );
+        }
+
+        private void symbol( String symbol )
+        {
+            int link = symbols.indexOf( symbol );
+            if ( link >= 0 )
+            {
+                out.write( ';' );
+                fixnum( link );
+                return;
+            }
+            symbols.add( symbol );
+            out.write( ':' );
+            fixnum( symbol.length() );
+            out.write( symbol.getBytes(), 0, symbol.length() );
+        }
+
+        private void fixnum( int value )
+        {
+            if ( value == 0 )
+            {
+                out.write( 0 );
+            }
+            else if ( value < 123 )
+            {
+                out.write( value + 5 );
+            }
+            else
+            {
+                out.write( 2 );
+                out.write( value & 0xff );
+                out.write( value >> 8 );
+            }
+        }
+    }
+}
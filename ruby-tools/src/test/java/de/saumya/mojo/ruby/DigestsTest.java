@@ -0,0 +1,35 @@
+package de.saumya.mojo.ruby;
+
+import java.io.File;
+
+import junit.framework.TestCase;
+
+import org.codehaus.plexus.util.FileUtils;
+
+public class DigestsTest extends TestCase {
+
+    private static final String ABC = "a9993e364706816aba3e25717850c26c9cd0d89d";
+
+    public void testHex() throws Exception {
+        assertEquals("", Digests.hex(new byte[0]));
+        assertEquals("00010f10ff80",
+                     Digests.hex(new byte[] { 0, 1, 15, 16, -1, -128 }));
+    }
+
+    public void testSha1() throws Exception {
+        assertEquals(ABC, Digests.sha1("abc"));
+
+        final File file = new File("target/digests/abc.txt");
+        file.getParentFile().mkdirs();
+        FileUtils.fileWrite(file.getPath(), "abc");
+        assertEquals(ABC, Digests.sha1(file));
+    }
+
+    public void testSha256() throws Exception {
+        final File file = new File("target/digests/abc.txt");
+        file.getParentFile().mkdirs();
+        FileUtils.fileWrite(file.getPath(), "abc");
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+                     Digests.sha256(file));
+    }
+}
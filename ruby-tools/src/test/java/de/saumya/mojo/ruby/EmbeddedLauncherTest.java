@@ -63,30 +63,23 @@ public class EmbeddedLauncherTest extends TestCase {
     }
 
     public void testExecution() throws Exception {
+        // the GemScriptFactory sets GEM_HOME for embedded executions as well
+        final File f = new File("target/test-classes/test.rb-gem.txt");
+        f.delete();
         this.factory.newArguments()
                 .addArg("target/test-classes/test.rb")
                 .addArg("one")
                 .addArg("two")
                 .addArg("three")
                 .execute();
-        File f = new File("target/test-classes/test.rb.txt");
-        if (!f.exists()) {
-            // in this case GEM_HOME was set in system environment
-            f = new File("target/test-classes/test.rb-gem.txt");
-        }
         assertEquals("onetwothree", FileUtils.fileRead(f)
                 .replace("\n", "--n--")
                 .replaceFirst("--n--.*", ""));
     }
 
     public void testExecutionInTarget() throws Exception {
-        final File f;
-        if (System.getenv("GEM_HOME") != null) {
-            f = new File("target/test-classes/test.rb-gem.txt");
-        }
-        else {
-            f = new File("target/test-classes/test.rb.txt");
-        }
+        // the GemScriptFactory sets GEM_HOME for embedded executions as well
+        final File f = new File("target/test-classes/test.rb-gem.txt");
 
         f.delete();
         this.factory.newArguments()
@@ -0,0 +1,170 @@
+package de.saumya.mojo.ruby.gems;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * builds small gems for the tests: a tar with metadata.gz and data.tar.gz
+ * like rubygems writes them. names longer than 100 characters get a GNU
+ * long name entry.
+ */
+class GemFixture {
+
+    private final String       name;
+
+    private final String       version;
+
+    private final List<String> executables = new ArrayList<String>();
+
+    private final List<String> extensions  = new ArrayList<String>();
+
+    private final List<Object[]> files     = new ArrayList<Object[]>();
+
+    GemFixture(final String name, final String version) {
+        this.name = name;
+        this.version = version;
+    }
+
+    GemFixture file(final String path, final String content) {
+        return file(path, content, 0644);
+    }
+
+    GemFixture file(final String path, final String content, final int mode) {
+        this.files.add(new Object[] { path, content, mode });
+        return this;
+    }
+
+    GemFixture executable(final String executable) {
+        this.executables.add(executable);
+        return file("bin/" + executable, "puts 'hello'\n", 0755);
+    }
+
+    GemFixture extension(final String extension) {
+        this.extensions.add(extension);
+        return file(extension, "require 'mkmf'\n");
+    }
+
+    String metadata() {
+        final StringBuilder yaml = new StringBuilder();
+        yaml.append("--- !ruby/object:Gem::Specification \n");
+        yaml.append("name: ").append(this.name).append("\n");
+        yaml.append("version: !ruby/object:Gem::Version \n");
+        yaml.append("  version: ").append(this.version).append("\n");
+        yaml.append("platform: ruby\n");
+        yaml.append("bindir: bin\n");
+        list(yaml, "executables", this.executables);
+        list(yaml, "extensions", this.extensions);
+        yaml.append("require_paths: \n- lib\n");
+        return yaml.toString();
+    }
+
+    File write(final File directory) throws IOException {
+        directory.mkdirs();
+        final File gem = new File(directory, this.name + "-" + this.version
+                + ".gem");
+        final ByteArrayOutputStream data = new ByteArrayOutputStream();
+        final OutputStream dataGz = new GZIPOutputStream(data);
+        for (final Object[] file : this.files) {
+            entry(dataGz,
+                  (String) file[0],
+                  ((String) file[1]).getBytes("UTF-8"),
+                  (Integer) file[2]);
+        }
+        dataGz.write(new byte[1024]);
+        dataGz.close();
+
+        final ByteArrayOutputStream metadata = new ByteArrayOutputStream();
+        final OutputStream metadataGz = new GZIPOutputStream(metadata);
+        metadataGz.write(metadata().getBytes("UTF-8"));
+        metadataGz.close();
+
+        final OutputStream out = new FileOutputStream(gem);
+        try {
+            entry(out, "data.tar.gz", data.toByteArray(), 0644);
+            entry(out, "metadata.gz", metadata.toByteArray(), 0644);
+            out.write(new byte[1024]);
+        }
+        finally {
+            out.close();
+        }
+        return gem;
+    }
+
+    private static void list(final StringBuilder yaml, final String key,
+            final List<String> values) {
+        if (values.isEmpty()) {
+            yaml.append(key).append(": []\n");
+        }
+        else {
+            yaml.append(key).append(": \n");
+            for (final String value : values) {
+                yaml.append("- ").append(value).append("\n");
+            }
+        }
+    }
+
+    static void entry(final OutputStream out, final String name,
+            final byte[] content, final int mode) throws IOException {
+        final byte[] bytes = name.getBytes("UTF-8");
+        if (bytes.length > 100) {
+            final byte[] longName = new byte[bytes.length + 1];
+            System.arraycopy(bytes, 0, longName, 0, bytes.length);
+            header(out, "././@LongLink", longName.length, 0644, 'L');
+            block(out, longName);
+            header(out, name.substring(0, 100), content.length, mode, '0');
+        }
+        else {
+            header(out, name, content.length, mode, '0');
+        }
+        block(out, content);
+    }
+
+    private static void header(final OutputStream out, final String name,
+            final long size, final int mode, final char type)
+            throws IOException {
+        final byte[] header = new byte[512];
+        put(header, 0, name.getBytes("UTF-8"));
+        put(header, 100, octal(mode, 7));
+        put(header, 108, octal(0, 7));
+        put(header, 116, octal(0, 7));
+        put(header, 124, octal(size, 11));
+        put(header, 136, octal(0, 11));
+        header[156] = (byte) type;
+        put(header, 257, "ustar\u000000".getBytes("UTF-8"));
+        for (int i = 148; i < 156; i++) {
+            header[i] = ' ';
+        }
+        long checksum = 0;
+        for (final byte b : header) {
+            checksum += b & 0xff;
+        }
+        put(header, 148, octal(checksum, 6));
+        header[154] = 0;
+        out.write(header);
+    }
+
+    private static void block(final OutputStream out, final byte[] content)
+            throws IOException {
+        out.write(content);
+        out.write(new byte[(512 - content.length % 512) % 512]);
+    }
+
+    private static byte[] octal(final long value, final int length) {
+        final StringBuilder octal = new StringBuilder(Long.toOctalString(value));
+        while (octal.length() < length) {
+            octal.insert(0, '0');
+        }
+        return octal.toString().getBytes();
+    }
+
+    private static void put(final byte[] header, final int offset,
+            final byte[] value) {
+        System.arraycopy(value, 0, header, offset, value.length);
+    }
+}
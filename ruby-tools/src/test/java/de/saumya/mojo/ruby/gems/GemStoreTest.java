@@ -0,0 +1,108 @@
+package de.saumya.mojo.ruby.gems;
+
+import java.io.File;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.codehaus.plexus.util.FileUtils;
+
+public class GemStoreTest extends TestCase {
+
+    private File base;
+
+    private File gem;
+
+    private int  unpacked;
+
+    @Override
+    public void setUp() throws Exception {
+        this.base = new File("target/gem-store").getAbsoluteFile();
+        FileUtils.deleteDirectory(this.base);
+        this.base.mkdirs();
+        this.gem = new File(this.base, "hello-1.0.0.gem");
+        FileUtils.fileWrite(this.gem.getPath(), "hello");
+        this.unpacked = 0;
+    }
+
+    private static void write(final File file, final String content)
+            throws IOException {
+        file.getParentFile().mkdirs();
+        FileUtils.fileWrite(file.getPath(), content);
+    }
+
+    private GemStore.Unpacker unpacker(final boolean success) {
+        return new GemStore.Unpacker() {
+
+            public boolean unpack(final File target) throws IOException {
+                GemStoreTest.this.unpacked++;
+                FileUtils.fileWrite(new File(target, "hello.rb").getPath(),
+                                    "puts 'hello'\n");
+                return success;
+            }
+        };
+    }
+
+    public void testReuse() throws Exception {
+        final File store = new File(this.base, "store");
+        final File first = new GemStore(store).get(this.gem, unpacker(true));
+        assertEquals(GemStore.checksum(this.gem), first.getName());
+        assertEquals("puts 'hello'\n",
+                     FileUtils.fileRead(new File(first, "hello.rb")));
+
+        assertEquals(first, new GemStore(store).get(this.gem, unpacker(true)));
+        assertEquals(1, this.unpacked);
+        // no leftovers of the unpacking
+        assertFalse(new File(store, "." + first.getName() + ".tmp").exists());
+    }
+
+    public void testChangedGem() throws Exception {
+        final GemStore store = new GemStore(new File(this.base, "store"));
+        final File first = store.get(this.gem, unpacker(true));
+        FileUtils.fileWrite(this.gem.getPath(), "hello again");
+
+        assertFalse(first.equals(store.get(this.gem, unpacker(true))));
+        assertEquals(2, this.unpacked);
+    }
+
+    public void testFailedUnpack() throws Exception {
+        final File store = new File(this.base, "store");
+        assertNull(new GemStore(store).get(this.gem, unpacker(false)));
+
+        final String checksum = GemStore.checksum(this.gem);
+        assertFalse(new File(store, checksum).exists());
+        assertFalse(new File(store, "." + checksum + ".tmp").exists());
+    }
+
+    public void testLink() throws Exception {
+        final File source = new File(this.base, "source");
+        write(new File(source, "lib/hello.rb"), "puts 'hello'\n");
+        write(new File(source, "bin/hello"), "#!/usr/bin/env jruby\n");
+        JavaGemInstaller.setExecutable(new File(source, "bin/hello"));
+
+        final File target = new File(this.base, "target");
+        GemStore.link(source, target);
+
+        assertEquals("puts 'hello'\n",
+                     FileUtils.fileRead(new File(target, "lib/hello.rb")));
+        assertEquals("#!/usr/bin/env jruby\n",
+                     FileUtils.fileRead(new File(target, "bin/hello")));
+        assertTrue(GemStore.isExecutable(new File(target, "bin/hello")));
+        assertFalse(GemStore.isExecutable(new File(target, "lib/hello.rb")));
+    }
+
+    public void testLinkFallsBackToCopy() throws Exception {
+        final File source = new File(this.base, "source");
+        write(new File(source, "bin/hello"), "#!/usr/bin/env jruby\n");
+        JavaGemInstaller.setExecutable(new File(source, "bin/hello"));
+
+        // neither a hard nor a symbolic link can replace an existing file
+        final File target = new File(this.base, "target");
+        write(new File(target, "bin/hello"), "");
+        GemStore.link(source, target);
+
+        assertEquals("#!/usr/bin/env jruby\n",
+                     FileUtils.fileRead(new File(target, "bin/hello")));
+        assertTrue(GemStore.isExecutable(new File(target, "bin/hello")));
+    }
+}
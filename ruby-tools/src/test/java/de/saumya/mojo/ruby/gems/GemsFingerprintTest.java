@@ -0,0 +1,75 @@
+package de.saumya.mojo.ruby.gems;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.codehaus.plexus.util.FileUtils;
+
+public class GemsFingerprintTest extends TestCase {
+
+    private GemsConfig config;
+
+    private File       gem;
+
+    private Artifact   artifact;
+
+    @Override
+    public void setUp() throws Exception {
+        final File base = new File("target/gems-fingerprint").getAbsoluteFile();
+        FileUtils.deleteDirectory(base);
+        this.config = new GemsConfig();
+        this.config.setGemHome(new File(base, "rubygems"));
+        new File(base, "rubygems/gems").mkdirs();
+        this.gem = new File(base, "rake-0.9.2.gem");
+        FileUtils.fileWrite(this.gem.getPath(), "rake");
+        this.artifact = artifact(this.gem);
+    }
+
+    private Artifact artifact(final File file) {
+        final Artifact artifact = new DefaultArtifact("rubygems",
+                "rake",
+                "0.9.2",
+                Artifact.SCOPE_COMPILE,
+                "gem",
+                null,
+                new DefaultArtifactHandler("gem"));
+        artifact.setFile(file);
+        return artifact;
+    }
+
+    private GemsFingerprint fingerprint(final Artifact artifact) {
+        final List<Artifact> artifacts = Arrays.asList(artifact);
+        return new GemsFingerprint(this.config).addArtifacts(artifacts);
+    }
+
+    public void testUpToDate() throws Exception {
+        assertFalse(fingerprint(this.artifact).isUpToDate());
+        fingerprint(this.artifact).store();
+        assertTrue(fingerprint(this.artifact).isUpToDate());
+    }
+
+    public void testChangedArtifact() throws Exception {
+        fingerprint(this.artifact).store();
+        FileUtils.fileWrite(this.gem.getPath(), "rake 0.9.2");
+        assertFalse(fingerprint(this.artifact).isUpToDate());
+    }
+
+    public void testChangedGemsDirectory() throws Exception {
+        final File gems = new File(this.config.getGemHome(), "gems");
+        gems.setLastModified(System.currentTimeMillis() - 60000);
+        fingerprint(this.artifact).store();
+        gems.setLastModified(System.currentTimeMillis());
+        assertFalse(fingerprint(this.artifact).isUpToDate());
+    }
+
+    public void testUnresolvedArtifact() throws Exception {
+        fingerprint(artifact(null)).store();
+        assertFalse(fingerprint(artifact(null)).isUpToDate());
+    }
+}
@@ -0,0 +1,54 @@
+package de.saumya.mojo.ruby.gems;
+
+import java.io.File;
+
+import junit.framework.TestCase;
+
+import org.codehaus.plexus.util.FileUtils;
+
+public class GemsIndexTest extends TestCase {
+
+    private File gems;
+
+    @Override
+    public void setUp() throws Exception {
+        final File base = new File("target/gems-index").getAbsoluteFile();
+        FileUtils.deleteDirectory(base);
+        this.gems = new File(base, "gems");
+        new File(this.gems, "rake-0.9.2").mkdirs();
+        new File(this.gems, "nokogiri-1.5.0-java").mkdirs();
+        // an old directory, so the index can be trusted right away
+        this.gems.setLastModified(System.currentTimeMillis() - 60000);
+    }
+
+    public void testContainsTheGemsDirectory() throws Exception {
+        final GemsIndex index = new GemsIndex(this.gems);
+        assertTrue(index.contains("rake-0.9.2"));
+        assertTrue(index.contains("nokogiri-1.5.0-java"));
+        assertFalse(index.contains("rake-0.8.7"));
+        assertTrue(new File(this.gems.getParentFile(), "gems.index").isFile());
+    }
+
+    public void testAdd() throws Exception {
+        final long modified = this.gems.lastModified();
+        new GemsIndex(this.gems).add("rspec-2.4.0");
+
+        // the next index comes from the file as long as the directory is
+        // unchanged
+        assertEquals(modified, this.gems.lastModified());
+        assertTrue(new GemsIndex(this.gems).contains("rspec-2.4.0"));
+    }
+
+    public void testChangedDirectory() throws Exception {
+        new GemsIndex(this.gems).add("rspec-2.4.0");
+        new File(this.gems, "rake-0.9.2").delete();
+        new File(this.gems, "rack-1.2.1").mkdirs();
+
+        // rebuilt from the directory
+        final GemsIndex index = new GemsIndex(this.gems);
+        assertTrue(index.contains("rack-1.2.1"));
+        assertTrue(index.contains("nokogiri-1.5.0-java"));
+        assertFalse(index.contains("rake-0.9.2"));
+        assertFalse(index.contains("rspec-2.4.0"));
+    }
+}
@@ -0,0 +1,106 @@
+package de.saumya.mojo.ruby.gems;
+
+import java.io.File;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.codehaus.plexus.util.FileUtils;
+
+public class JavaGemInstallerTest extends TestCase {
+
+    private static final String LONG_NAME = "lib/hello/"
+                                                  + "very_long_directory_name_which_does_not_fit_into_the_name_field/"
+                                                  + "of_a_tar_header_and_needs_a_long_link_entry.rb";
+
+    private File                base;
+
+    private File                gemHome;
+
+    private JavaGemInstaller    installer;
+
+    @Override
+    public void setUp() throws Exception {
+        this.base = new File("target/java-gem-installer").getAbsoluteFile();
+        FileUtils.deleteDirectory(this.base);
+        this.gemHome = new File(this.base, "rubygems");
+        final GemsConfig config = new GemsConfig();
+        config.setGemHome(this.gemHome);
+        this.installer = new JavaGemInstaller(config);
+    }
+
+    private File hello() throws IOException {
+        return new GemFixture("hello", "1.0.0").file("lib/hello.rb",
+                                                      "puts 'hello'\n")
+                .file(LONG_NAME, "# long\n")
+                .executable("hello")
+                .write(this.base);
+    }
+
+    public void testUnpack() throws Exception {
+        assertEquals("hello-1.0.0", this.installer.install(hello()));
+
+        final File dir = new File(this.gemHome, "gems/hello-1.0.0");
+        assertEquals("puts 'hello'\n",
+                     FileUtils.fileRead(new File(dir, "lib/hello.rb")));
+        assertEquals("# long\n", FileUtils.fileRead(new File(dir, LONG_NAME)));
+        assertTrue(new File(this.gemHome, "cache/hello-1.0.0.gem").isFile());
+        // no leftovers of the unpacking
+        assertEquals(1, new File(this.gemHome, "gems").list().length);
+    }
+
+    public void testSpecification() throws Exception {
+        this.installer.install(hello());
+
+        final String spec = FileUtils.fileRead(new File(this.gemHome,
+                "specifications/hello-1.0.0.gemspec"));
+        assertTrue(spec.contains("Gem::Specification.from_yaml(<<'GEMSPEC_YAML')\n"));
+        assertTrue(spec.contains("name: hello\n"));
+        assertTrue(spec.contains("  version: 1.0.0\n"));
+        assertTrue(spec.endsWith("\nGEMSPEC_YAML\n"));
+    }
+
+    public void testExecutables() throws Exception {
+        this.installer.install(hello());
+
+        final File dir = new File(this.gemHome, "gems/hello-1.0.0");
+        assertTrue(GemStore.isExecutable(new File(dir, "bin/hello")));
+        assertFalse(GemStore.isExecutable(new File(dir, "lib/hello.rb")));
+
+        final File stub = new File(this.gemHome, "bin/hello");
+        assertTrue(GemStore.isExecutable(stub));
+        final String content = FileUtils.fileRead(stub);
+        assertTrue(content.startsWith("#!/usr/bin/env jruby\n"));
+        assertTrue(content.contains("gem 'hello', version\n"));
+        assertTrue(content.contains("load Gem.bin_path('hello', 'hello', version)\n"));
+    }
+
+    public void testExtensionsNeedRubygems() throws Exception {
+        final File gem = new GemFixture("native", "0.1.0").file("lib/native.rb",
+                                                                 "")
+                .extension("ext/extconf.rb")
+                .write(this.base);
+
+        // GemsInstaller falls back to 'gem install' for these
+        assertNull(this.installer.install(gem));
+        assertFalse(new File(this.gemHome, "gems/native-0.1.0").exists());
+        assertFalse(new File(this.gemHome, "specifications/native-0.1.0.gemspec").exists());
+    }
+
+    public void testRejectParentDirectory() throws Exception {
+        final File gem = new GemFixture("evil", "0.1.0").file("lib/evil.rb",
+                                                               "")
+                .file("../../evil.rb", "")
+                .write(this.base);
+        try {
+            this.installer.install(gem);
+            fail("entries outside of the gem directory must fail");
+        }
+        catch (final IOException e) {
+            assertTrue(e.getMessage().contains("../../evil.rb"));
+        }
+        assertFalse(new File(this.gemHome, "evil.rb").exists());
+        assertFalse(new File(this.gemHome, "gems/evil-0.1.0").exists());
+        assertFalse(new File(this.gemHome, "specifications/evil-0.1.0.gemspec").exists());
+    }
+}
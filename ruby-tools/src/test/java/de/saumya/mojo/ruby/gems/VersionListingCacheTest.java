@@ -0,0 +1,227 @@
+package de.saumya.mojo.ruby.gems;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.repository.ArtifactRepositoryPolicy;
+import org.apache.maven.artifact.repository.MavenArtifactRepository;
+import org.apache.maven.artifact.repository.layout.DefaultRepositoryLayout;
+import org.codehaus.plexus.util.FileUtils;
+
+public class VersionListingCacheTest extends TestCase {
+
+    private static final String LISTING = "<html><body>\n"
+                                                + "<a href=\"0.9.2/\">0.9.2/</a>\n"
+                                                + "<a href=\"0.8.7/\">0.8.7/</a>\n"
+                                                + "<a href=\"maven-metadata.xml\">maven-metadata.xml</a>\n"
+                                                + "</body></html>\n";
+
+    private File                localRepository;
+
+    private Artifact            artifact;
+
+    private ServerSocket        server;
+
+    private final List<String>  requests = new ArrayList<String>();
+
+    private final List<String>  responses = new ArrayList<String>();
+
+    @Override
+    public void setUp() throws Exception {
+        this.localRepository = new File("target/version-listing-cache").getAbsoluteFile();
+        FileUtils.deleteDirectory(this.localRepository);
+        this.artifact = new DefaultArtifact("rubygems",
+                "rake",
+                "[0,)",
+                "compile",
+                "gem",
+                null,
+                new DefaultArtifactHandler("gem"));
+        this.server = new ServerSocket(0);
+        final Thread thread = new Thread() {
+
+            @Override
+            public void run() {
+                serve();
+            }
+        };
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        this.server.close();
+    }
+
+    // answers each request with the next response and records the
+    // request headers
+    private void serve() {
+        while (!this.server.isClosed()) {
+            try {
+                final Socket socket = this.server.accept();
+                try {
+                    final BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                            "ISO-8859-1"));
+                    final StringBuilder request = new StringBuilder();
+                    String line = in.readLine();
+                    while (line != null && line.length() > 0) {
+                        request.append(line).append('\n');
+                        line = in.readLine();
+                    }
+                    final String response;
+                    synchronized (this.requests) {
+                        this.requests.add(request.toString());
+                        response = this.responses.remove(0);
+                    }
+                    final OutputStream out = socket.getOutputStream();
+                    out.write(response.getBytes("ISO-8859-1"));
+                    out.flush();
+                }
+                finally {
+                    socket.close();
+                }
+            }
+            catch (final IOException e) {
+                // closed
+            }
+        }
+    }
+
+    private static String ok(final String body) {
+        return "HTTP/1.1 200 OK\r\n" + "ETag: \"v1\"\r\n"
+                + "Last-Modified: Sat, 01 Jan 2011 00:00:00 GMT\r\n"
+                + "Content-Type: text/html\r\n" + "Content-Length: "
+                + body.length() + "\r\n" + "Connection: close\r\n\r\n"
+                + body;
+    }
+
+    private static String notModified() {
+        return "HTTP/1.1 304 Not Modified\r\n" + "Connection: close\r\n\r\n";
+    }
+
+    private ArtifactRepository repository(final String url,
+            final String updatePolicy) {
+        final ArtifactRepositoryPolicy policy = new ArtifactRepositoryPolicy(true,
+                updatePolicy,
+                ArtifactRepositoryPolicy.CHECKSUM_POLICY_IGNORE);
+        return new MavenArtifactRepository("stub",
+                url,
+                new DefaultRepositoryLayout(),
+                policy,
+                policy);
+    }
+
+    private ArtifactRepository repository(final String updatePolicy) {
+        return repository("http://localhost:" + this.server.getLocalPort(),
+                          updatePolicy);
+    }
+
+    private List<String> versions(final ArtifactRepository repository,
+            final boolean offline) throws IOException {
+        return new VersionListingCache(this.localRepository, offline).versions(repository,
+                                                                               this.artifact);
+    }
+
+    private String request(final int index) {
+        synchronized (this.requests) {
+            return this.requests.get(index);
+        }
+    }
+
+    public void testScrapeAndCache() throws Exception {
+        this.responses.add(ok(LISTING));
+        assertEquals(Arrays.asList("0.9.2", "0.8.7"),
+                     versions(repository(ArtifactRepositoryPolicy.UPDATE_POLICY_DAILY),
+                              false));
+        assertTrue(request(0), request(0).startsWith("GET /rubygems/rake/ "));
+        assertTrue(new File(this.localRepository,
+                "rubygems/rake/versions-stub.properties").isFile());
+
+        // the update policy says the cache is still good
+        assertEquals(Arrays.asList("0.9.2", "0.8.7"),
+                     versions(repository(ArtifactRepositoryPolicy.UPDATE_POLICY_DAILY),
+                              false));
+        assertEquals(1, this.requests.size());
+    }
+
+    public void testRevalidateWithETagAndLastModified() throws Exception {
+        this.responses.add(ok(LISTING));
+        this.responses.add(notModified());
+        this.responses.add(ok(LISTING.replace("0.8.7", "0.9.3")));
+        versions(repository(ArtifactRepositoryPolicy.UPDATE_POLICY_ALWAYS),
+                 false);
+
+        assertEquals(Arrays.asList("0.9.2", "0.8.7"),
+                     versions(repository(ArtifactRepositoryPolicy.UPDATE_POLICY_ALWAYS),
+                              false));
+        final String revalidation = request(1);
+        assertTrue(revalidation, revalidation.contains("If-None-Match: \"v1\"\n"));
+        assertTrue(revalidation,
+                   revalidation.contains("If-Modified-Since: Sat, 01 Jan 2011 00:00:00 GMT\n"));
+
+        // a changed listing replaces the cache
+        assertEquals(Arrays.asList("0.9.2", "0.9.3"),
+                     versions(repository(ArtifactRepositoryPolicy.UPDATE_POLICY_ALWAYS),
+                              false));
+        assertEquals(3, this.requests.size());
+    }
+
+    public void testOffline() throws Exception {
+        this.responses.add(ok(LISTING));
+        versions(repository(ArtifactRepositoryPolicy.UPDATE_POLICY_ALWAYS),
+                 false);
+
+        assertEquals(Arrays.asList("0.9.2", "0.8.7"),
+                     versions(repository(ArtifactRepositoryPolicy.UPDATE_POLICY_ALWAYS),
+                              true));
+        assertEquals(1, this.requests.size());
+    }
+
+    public void testOfflineWithoutCache() throws Exception {
+        assertEquals(0,
+                     versions(repository(ArtifactRepositoryPolicy.UPDATE_POLICY_ALWAYS),
+                              true).size());
+        assertEquals(0, this.requests.size());
+    }
+
+    public void testUnreachableRepositoryUsesTheCache() throws Exception {
+        this.responses.add(ok(LISTING));
+        versions(repository(ArtifactRepositoryPolicy.UPDATE_POLICY_ALWAYS),
+                 false);
+        final String url = "http://localhost:" + this.server.getLocalPort();
+        this.server.close();
+
+        assertEquals(Arrays.asList("0.9.2", "0.8.7"),
+                     versions(repository(url,
+                                         ArtifactRepositoryPolicy.UPDATE_POLICY_ALWAYS),
+                              false));
+    }
+
+    public void testUnreachableRepositoryWithoutCache() throws Exception {
+        final String url = "http://localhost:" + this.server.getLocalPort();
+        this.server.close();
+        try {
+            versions(repository(url, ArtifactRepositoryPolicy.UPDATE_POLICY_ALWAYS),
+                     false);
+            fail("expected an IOException");
+        }
+        catch (final IOException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package de.saumya.mojo.ruby.script;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.codehaus.plexus.util.FileUtils;
+
+import de.saumya.mojo.ruby.NoopLogger;
+
+public class ClassDataSharingTest extends TestCase {
+
+    private File             dir;
+
+    private File             jrubyJar;
+
+    private ClassDataSharing cds;
+
+    @Override
+    public void setUp() throws Exception {
+        this.dir = new File("target/class-data-sharing").getAbsoluteFile();
+        FileUtils.deleteDirectory(this.dir);
+        this.jrubyJar = new File(this.dir, "jruby-complete.jar");
+        this.dir.mkdirs();
+        FileUtils.fileWrite(this.jrubyJar.getPath(), "jruby");
+        this.cds = new ClassDataSharing(new NoopLogger(),
+                new File(this.dir, "cds"),
+                false);
+    }
+
+    private List<String> command(final String classpath) {
+        return Arrays.asList("java",
+                             "-Xbootclasspath/a:" + this.jrubyJar.getPath(),
+                             "-cp",
+                             classpath);
+    }
+
+    private File archive(final List<String> command) throws Exception {
+        final ClassDataSharing.Fork fork = this.cds.prepare(command);
+        this.cds.done(fork, command);
+        return fork.archive;
+    }
+
+    public void testArchiveKey() throws Exception {
+        final File archive = archive(command("a.jar"));
+        assertEquals(archive, archive(command("a.jar")));
+        assertTrue(archive.getName().matches("jruby-[0-9a-f]{40}\\.jsa"));
+
+        // other classpath
+        assertFalse(archive.equals(archive(command("b.jar"))));
+
+        // changed jruby jar
+        FileUtils.fileWrite(this.jrubyJar.getPath(), "other jruby");
+        assertFalse(archive.equals(archive(command("a.jar"))));
+    }
+
+    public void testCreateAndUseTheArchive() throws Exception {
+        final List<String> command = command("a.jar");
+        final ClassDataSharing.Fork dumping = this.cds.prepare(command);
+        assertNotNull(dumping.dump);
+        assertEquals(Arrays.asList("-XX:ArchiveClassesAtExit="
+                             + dumping.dump.getAbsolutePath()),
+                     dumping.jvmArgs);
+
+        // a parallel fork runs without archive
+        final ClassDataSharing.Fork parallel = this.cds.prepare(command);
+        assertNull(parallel.dump);
+        assertEquals(0, parallel.jvmArgs.size());
+        this.cds.done(parallel, command);
+
+        // the JVM writes the archive on exit
+        FileUtils.fileWrite(dumping.dump.getPath(), "archive");
+        this.cds.done(dumping, command);
+        assertTrue(dumping.archive.isFile());
+        assertFalse(dumping.dump.exists());
+
+        final ClassDataSharing.Fork sharing = this.cds.prepare(command);
+        assertNull(sharing.dump);
+        assertEquals(Arrays.asList("-XX:SharedArchiveFile="
+                             + dumping.archive.getAbsolutePath(),
+                                   "-Xshare:auto"),
+                     sharing.jvmArgs);
+    }
+
+    public void testRetryAfterFailedDump() throws Exception {
+        final List<String> command = command("a.jar");
+        final ClassDataSharing.Fork failed = this.cds.prepare(command);
+        // the JVM did not write the archive
+        this.cds.done(failed, command);
+        assertFalse(failed.archive.exists());
+
+        // the next fork tries again
+        final ClassDataSharing.Fork retry = this.cds.prepare(command);
+        assertNotNull(retry.dump);
+        assertEquals(failed.archive, retry.archive);
+        FileUtils.fileWrite(retry.dump.getPath(), "archive");
+        this.cds.done(retry, command);
+        assertTrue(retry.archive.isFile());
+    }
+}
@@ -0,0 +1,90 @@
+package de.saumya.mojo.ruby.script;
+
+import java.io.File;
+
+import junit.framework.TestCase;
+
+import org.codehaus.classworlds.ClassRealm;
+import org.codehaus.classworlds.ClassWorld;
+import org.codehaus.plexus.util.FileUtils;
+
+import de.saumya.mojo.ruby.NoopLogger;
+
+public class EmbeddedRuntimesTest extends TestCase {
+
+    private File jrubyJar;
+
+    private File dir;
+
+    @Override
+    public void setUp() throws Exception {
+        this.jrubyJar = new File(org.jruby.Main.class.getProtectionDomain()
+                .getCodeSource()
+                .getLocation()
+                .toURI());
+        this.dir = new File("target/embedded-runtimes").getAbsoluteFile();
+        FileUtils.deleteDirectory(this.dir);
+        this.dir.mkdirs();
+    }
+
+    public void testLimitOfParallelRuntimes() throws Exception {
+        final ScriptFactory factory = new ScriptFactory(new NoopLogger(),
+                null,
+                this.jrubyJar,
+                null,
+                false);
+        final File output = new File(this.dir, "output.txt");
+        final Exception[] error = new Exception[1];
+        final Thread thread = new Thread() {
+
+            @Override
+            public void run() {
+                try {
+                    factory.newScript("puts 'done'").execute(output);
+                }
+                catch (final Exception e) {
+                    error[0] = e;
+                }
+            }
+        };
+
+        // all runtimes are busy
+        final int permits = EmbeddedLauncher.RUNTIMES.drainPermits();
+        try {
+            thread.start();
+            thread.join(1000);
+            assertTrue(thread.isAlive());
+            assertFalse(output.exists());
+
+            // one runtime gets free
+            EmbeddedLauncher.RUNTIMES.release();
+            thread.join(60000);
+            assertFalse(thread.isAlive());
+            assertNull(error[0]);
+            assertEquals("done\n", FileUtils.fileRead(output));
+            assertEquals(1, EmbeddedLauncher.RUNTIMES.availablePermits());
+        }
+        finally {
+            EmbeddedLauncher.RUNTIMES.release(permits - 1);
+        }
+    }
+
+    public void testSharedJrubyRealm() throws Exception {
+        final ClassWorld world = new ClassWorld();
+        final ClassRealm plugin = world.newRealm("plugin");
+        final ScriptFactory first = new ScriptFactory(new NoopLogger(),
+                plugin,
+                this.jrubyJar,
+                null,
+                false);
+        final ScriptFactory second = new ScriptFactory(new NoopLogger(),
+                plugin,
+                this.jrubyJar,
+                null,
+                false);
+        assertSame(first.classRealm.getClassLoader(),
+                   second.classRealm.getClassLoader());
+        assertSame(world.getRealm("jruby").getClassLoader(),
+                   first.classRealm.getClassLoader());
+    }
+}
@@ -0,0 +1,70 @@
+package de.saumya.mojo.ruby.script;
+
+import java.io.File;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.codehaus.plexus.util.FileUtils;
+
+import de.saumya.mojo.ruby.NoopLogger;
+
+public class MetricsReportTest extends TestCase {
+
+    private static final String TIMESTAMP = "\\d{4}-\\d\\d-\\d\\dT\\d\\d:\\d\\d:\\d\\d\\.\\d{3},";
+
+    private File                file;
+
+    @Override
+    public void setUp() throws Exception {
+        this.file = new File("target/metrics-report/jruby-metrics.csv").getAbsoluteFile();
+        FileUtils.deleteDirectory(this.file.getParentFile());
+    }
+
+    public void testRows() throws Exception {
+        final File dir = new File("target/metrics-report/dir").getAbsoluteFile();
+        final ExecutionMetrics fork = new ExecutionMetrics(ExecutionMetrics.FORK,
+                dir,
+                Arrays.asList("-e", "puts 'a,b'\nputs \"\u00fc\""));
+        fork.finished(0);
+        fork.outputBytes = 12;
+
+        final ExecutionMetrics worker = new ExecutionMetrics(ExecutionMetrics.WORKER,
+                null,
+                Arrays.asList("-S", "rake"));
+        worker.started();
+        worker.peakRss = 2048;
+        worker.finished(3);
+
+        new MetricsReport(this.file, "g:a:FirstMojo", new NoopLogger()).add(fork);
+        // a second report appends to the same file
+        new MetricsReport(this.file, "g:a:SecondMojo", new NoopLogger()).add(worker);
+
+        final String[] lines = FileUtils.fileRead(this.file, "UTF-8")
+                .split("\n");
+        assertEquals(3, lines.length);
+        assertEquals("timestamp,label,mode,startup_ms,wall_ms,exit_code,peak_rss_kb,output_bytes,directory,script",
+                     lines[0]);
+
+        // not measured values stay empty and values with commas or quotes
+        // get quoted
+        assertTrue(lines[1], lines[1].matches(TIMESTAMP
+                + "g:a:FirstMojo,fork,,\\d+,0,,12," + dir.getPath().replace(".", "\\.")
+                + ",\"-e puts 'a,b' puts \"\"\u00fc\"\"\""));
+        assertTrue(lines[2], lines[2].matches(TIMESTAMP
+                + "g:a:SecondMojo,worker,\\d+,\\d+,3,2048,,,-S rake"));
+    }
+
+    public void testLongScriptGetsTruncated() throws Exception {
+        final char[] script = new char[1000];
+        Arrays.fill(script, 'x');
+        final ExecutionMetrics metrics = new ExecutionMetrics(ExecutionMetrics.EMBEDDED,
+                null,
+                Arrays.asList("-e", new String(script)));
+        new MetricsReport(this.file, "label", new NoopLogger()).add(metrics);
+
+        final String line = FileUtils.fileRead(this.file, "UTF-8").split("\n")[1];
+        assertTrue(line, line.endsWith(",-e xxx"
+                + new String(script, 0, 256 - 9) + "..."));
+    }
+}
@@ -0,0 +1,106 @@
+package de.saumya.mojo.ruby.script;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import junit.framework.TestCase;
+
+import org.codehaus.plexus.util.FileUtils;
+
+import de.saumya.mojo.ruby.Logger;
+
+public class OutputPumpTest extends TestCase {
+
+    /**
+     * logger which blocks until released and records the lines.
+     */
+    static class SlowLogger implements Logger {
+
+        final CountDownLatch release = new CountDownLatch(1);
+
+        final List<String>   lines   = new ArrayList<String>();
+
+        private synchronized void log(final String level,
+                final CharSequence content) {
+            try {
+                this.release.await();
+            }
+            catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            this.lines.add(level + content);
+        }
+
+        public void debug(final CharSequence content) {
+            log("debug:", content);
+        }
+
+        public void info(final CharSequence content) {
+            log("info:", content);
+        }
+
+        public void warn(final CharSequence content) {
+            log("warn:", content);
+        }
+
+        public void error(final CharSequence content) {
+            log("error:", content);
+        }
+    }
+
+    public void testKeepWarningsAndErrors() throws Exception {
+        final SlowLogger logger = new SlowLogger();
+        final OutputPump pump = new OutputPump(logger, null, 2);
+        for (int i = 0; i < 10; i++) {
+            pump.info("info " + i);
+        }
+        final Thread producer = new Thread() {
+            @Override
+            public void run() {
+                pump.warn("warn");
+                pump.error("error");
+            }
+        };
+        producer.start();
+        // the producer waits for room in the buffer
+        Thread.sleep(100);
+        logger.release.countDown();
+        producer.join();
+        pump.close();
+
+        assertTrue(logger.lines.contains("warn:warn"));
+        assertTrue(logger.lines.contains("error:error"));
+        assertTrue(logger.lines.indexOf("warn:warn") < logger.lines.indexOf("error:error"));
+        // some info lines got dropped and the summary got logged
+        assertTrue(logger.lines.size() < 13);
+        assertTrue(logger.lines.get(logger.lines.size() - 1)
+                .startsWith("warn:skipped "));
+    }
+
+    public void testTeeGetsTheDroppedLines() throws Exception {
+        final File tee = new File("target/output-pump/tee.txt").getAbsoluteFile();
+        FileUtils.deleteDirectory(tee.getParentFile());
+        final SlowLogger logger = new SlowLogger();
+        final OutputPump pump = new OutputPump(logger, tee, 2);
+        pump.debug("ant verbose");
+        for (int i = 0; i < 10; i++) {
+            pump.info("info " + i);
+        }
+        logger.release.countDown();
+        pump.error("error");
+        pump.close();
+
+        assertTrue(logger.lines.size() < 12);
+        // all the output of the script but no debug lines
+        final StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            expected.append("info ").append(i).append('\n');
+        }
+        expected.append("error\n");
+        assertEquals(expected.toString(), FileUtils.fileRead(tee, "UTF-8"));
+        assertTrue(logger.lines.get(logger.lines.size() - 1)
+                .endsWith(", see " + tee + " for the full output"));
+    }
+}
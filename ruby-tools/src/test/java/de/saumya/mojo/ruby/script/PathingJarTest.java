@@ -0,0 +1,74 @@
+package de.saumya.mojo.ruby.script;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+
+import junit.framework.TestCase;
+
+import org.codehaus.plexus.util.FileUtils;
+
+public class PathingJarTest extends TestCase {
+
+    private File dir;
+
+    @Override
+    public void setUp() throws Exception {
+        this.dir = new File("target/pathing jar").getAbsoluteFile();
+        FileUtils.deleteDirectory(this.dir);
+        this.dir.mkdirs();
+    }
+
+    private static String classPath(final File jar) throws Exception {
+        final JarFile file = new JarFile(jar);
+        try {
+            return file.getManifest()
+                    .getMainAttributes()
+                    .getValue(Attributes.Name.CLASS_PATH);
+        }
+        finally {
+            file.close();
+        }
+    }
+
+    public void testClassPathWithSpaces() throws Exception {
+        final File classes = new File(this.dir, "my classes");
+        final File lib = new File(this.dir, "lib dir/some lib.jar");
+        classes.mkdirs();
+        FileUtils.fileWrite(new File(classes, "hello.txt").getPath(), "hello");
+        final File jar = PathingJar.create(new File(this.dir, "jars"),
+                                           Arrays.asList(classes.getPath(),
+                                                         lib.getPath()));
+
+        final String[] urls = classPath(jar).split(" ");
+        assertEquals(2, urls.length);
+        assertEquals(classes.toURI().toString(), urls[0]);
+        assertTrue(urls[0], urls[0].contains("my%20classes/"));
+        assertTrue(urls[1], urls[1].endsWith("lib%20dir/some%20lib.jar"));
+
+        // the JVM resolves the entries relative to the pathing jar
+        final URLClassLoader loader = new URLClassLoader(new URL[] { jar.toURI()
+                .toURL() }, null);
+        assertNotNull(loader.getResource("hello.txt"));
+    }
+
+    public void testMissingDirectoryGetsTrailingSlash() throws Exception {
+        final File classes = new File(this.dir, "not yet compiled");
+        final File jar = PathingJar.create(this.dir,
+                                           Arrays.asList(classes.getPath()));
+        assertTrue(classPath(jar).endsWith("not%20yet%20compiled/"));
+    }
+
+    public void testReuse() throws Exception {
+        final File jar = PathingJar.create(this.dir, Arrays.asList("a.jar"));
+        final long modified = jar.lastModified() - 10000;
+        jar.setLastModified(modified);
+        assertEquals(jar, PathingJar.create(this.dir, Arrays.asList("a.jar")));
+        assertEquals(modified, jar.lastModified());
+        assertFalse(jar.equals(PathingJar.create(this.dir,
+                                                 Arrays.asList("b.jar"))));
+    }
+}
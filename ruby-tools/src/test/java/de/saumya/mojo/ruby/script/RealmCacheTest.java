@@ -0,0 +1,82 @@
+package de.saumya.mojo.ruby.script;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.codehaus.classworlds.ClassRealm;
+import org.codehaus.classworlds.ClassWorld;
+import org.codehaus.plexus.util.FileUtils;
+
+public class RealmCacheTest extends TestCase {
+
+    private ClassRealm   jruby;
+
+    private File         jrubyJar;
+
+    private File         classes;
+
+    private File         jar;
+
+    private List<String> classpath;
+
+    @Override
+    public void setUp() throws Exception {
+        final File dir = new File("target/realm-cache").getAbsoluteFile();
+        FileUtils.deleteDirectory(dir);
+        this.classes = new File(dir, "classes");
+        this.jar = new File(dir, "lib.jar");
+        this.jrubyJar = new File(dir, "jruby-complete.jar");
+        write(new File(this.classes, "hello/World.class"), "world");
+        write(this.jar, "lib");
+        this.jruby = new ClassWorld().newRealm("jruby");
+        this.classpath = Arrays.asList(this.classes.getPath(),
+                                       this.jar.getPath());
+    }
+
+    private void write(final File file, final String content) throws Exception {
+        file.getParentFile().mkdirs();
+        FileUtils.fileWrite(file.getPath(), content);
+        // older than anything which gets written by the tests
+        file.setLastModified(file.lastModified() - 10000);
+    }
+
+    private ClassRealm realm() throws Exception {
+        final ClassRealm realm = RealmCache.acquire(this.jruby,
+                                                    this.jrubyJar,
+                                                    this.classpath);
+        RealmCache.release(realm);
+        return realm;
+    }
+
+    public void testUnchangedClasspathReusesTheRealm() throws Exception {
+        assertSame(realm(), realm());
+    }
+
+    public void testRecompiledClass() throws Exception {
+        final ClassRealm realm = realm();
+        final File clazz = new File(this.classes, "hello/World.class");
+        FileUtils.fileWrite(clazz.getPath(), "other");
+        // the directories keep their modification time
+        assertNotSame(realm, realm());
+    }
+
+    public void testAddedAndDeletedClass() throws Exception {
+        final ClassRealm realm = realm();
+        final File clazz = new File(this.classes, "hello/Other.class");
+        write(clazz, "other");
+        final ClassRealm added = realm();
+        assertNotSame(realm, added);
+
+        clazz.delete();
+        assertNotSame(added, realm());
+    }
+
+    public void testChangedJar() throws Exception {
+        final ClassRealm realm = realm();
+        FileUtils.fileWrite(this.jar.getPath(), "changed lib");
+        assertNotSame(realm, realm());
+    }
+}
@@ -0,0 +1,81 @@
+package de.saumya.mojo.ruby.script;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.codehaus.plexus.util.FileUtils;
+
+import de.saumya.mojo.ruby.NoopLogger;
+
+public class ScriptBatchTest extends TestCase {
+
+    private static final String APPEND = "File.open(ARGV.shift, 'a') { |f| f.puts ARGV.join(',') + ' ' + File.basename(Dir.pwd) }";
+
+    private ScriptFactory       factory;
+
+    private File                dir;
+
+    private File                output;
+
+    @Override
+    public void setUp() throws Exception {
+        final List<String> classpathElements = new ArrayList<String>();
+        classpathElements.add(".");
+        // embedded without classrealm
+        this.factory = new ScriptFactory(new NoopLogger(),
+                null,
+                new File(""),
+                classpathElements,
+                false);
+        this.dir = new File("target/script-batch").getAbsoluteFile();
+        FileUtils.deleteDirectory(this.dir);
+        new File(this.dir, "first").mkdirs();
+        new File(this.dir, "second").mkdirs();
+        this.output = new File(this.dir, "output.txt");
+    }
+
+    public void testOrderArgumentsAndDirectory() throws Exception {
+        final ScriptBatch batch = this.factory.newScriptBatch();
+        batch.add(this.factory.newScript(APPEND)
+                          .addArg(this.output)
+                          .addArg("one")
+                          .addArg("two"),
+                  new File(this.dir, "first"));
+        batch.add(this.factory.newScript(APPEND)
+                          .addArg(this.output)
+                          .addArg("three"),
+                  new File(this.dir, "second"));
+        batch.execute();
+
+        assertEquals("one,two first\nthree second\n",
+                     FileUtils.fileRead(this.output));
+        assertEquals(Arrays.asList(0, 0), batch.statuses());
+    }
+
+    public void testFailingScriptFailsTheBatch() throws Exception {
+        final ScriptBatch batch = this.factory.newScriptBatch();
+        batch.add(this.factory.newScript(APPEND + "; exit 3")
+                          .addArg(this.output)
+                          .addArg("one"),
+                  new File(this.dir, "first"));
+        batch.add(this.factory.newScript(APPEND)
+                          .addArg(this.output)
+                          .addArg("two"),
+                  new File(this.dir, "second"));
+        try {
+            batch.execute();
+            fail("the batch should fail");
+        }
+        catch (final ScriptException e) {
+            // expected
+        }
+
+        // the second script did not run
+        assertEquals("one first\n", FileUtils.fileRead(this.output));
+        assertEquals(Arrays.asList(3), batch.statuses());
+    }
+}
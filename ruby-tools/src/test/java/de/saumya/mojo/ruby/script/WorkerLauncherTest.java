@@ -0,0 +1,86 @@
+package de.saumya.mojo.ruby.script;
+
+import java.io.File;
+
+import junit.framework.TestCase;
+
+import org.codehaus.plexus.util.FileUtils;
+
+import de.saumya.mojo.ruby.NoopLogger;
+
+public class WorkerLauncherTest extends TestCase {
+
+    private static final String SCRIPT = "File.open('name.txt', 'w') { |f| f.puts ENV['NAME'] }\n"
+                                               + "puts ENV['NAME']\n"
+                                               + "puts File.basename(Dir.pwd)\n"
+                                               + "puts ENV['LEAK'].inspect\n"
+                                               + "puts $$\n"
+                                               + "ENV['LEAK'] = ENV['NAME']";
+
+    private final Object        owner  = new Object();
+
+    private File                jrubyJar;
+
+    private File                dir;
+
+    @Override
+    public void setUp() throws Exception {
+        this.jrubyJar = new File(org.jruby.Main.class.getProtectionDomain()
+                .getCodeSource()
+                .getLocation()
+                .toURI());
+        this.dir = new File("target/worker-launcher").getAbsoluteFile();
+        FileUtils.deleteDirectory(this.dir);
+        new File(this.dir, "first").mkdirs();
+        new File(this.dir, "second").mkdirs();
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        ScriptFactory.stopWorkers(this.owner);
+    }
+
+    private String[] execute(final String name) throws Exception {
+        final ScriptFactory factory = new ScriptFactory(new NoopLogger(),
+                null,
+                this.jrubyJar,
+                null,
+                true);
+        factory.useWorker(this.owner);
+        factory.addEnv("NAME", name);
+        final File output = new File(this.dir, name + ".txt");
+        factory.newScript(SCRIPT).executeIn(new File(this.dir, name), output);
+        return FileUtils.fileRead(output).split("\n");
+    }
+
+    public void testTwoScriptsOnOneWorker() throws Exception {
+        final String[] first = execute("first");
+        final String[] second = execute("second");
+
+        assertEquals("first", first[0]);
+        assertEquals("first", first[1]);
+        assertEquals("nil", first[2]);
+        assertEquals("first\n",
+                     FileUtils.fileRead(new File(this.dir, "first/name.txt")));
+
+        assertEquals("second", second[0]);
+        assertEquals("second", second[1]);
+        // the environment of the first script is gone
+        assertEquals("nil", second[2]);
+        assertEquals("second\n",
+                     FileUtils.fileRead(new File(this.dir, "second/name.txt")));
+
+        // same JVM
+        assertEquals(first[3], second[3]);
+    }
+
+    public void testStopWorkers() throws Exception {
+        final String[] first = execute("first");
+        ScriptFactory.stopWorkers(this.owner);
+        final String[] second = execute("second");
+
+        assertEquals("second", second[0]);
+        // new JVM
+        assertFalse(first[3].equals(second[3]));
+    }
+}